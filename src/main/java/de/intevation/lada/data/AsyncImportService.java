@@ -7,15 +7,22 @@
  */
 package de.intevation.lada.data;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -95,6 +102,68 @@ public class AsyncImportService extends LadaService {
         return Response.ok(responseJson.toString()).build();
     }
 
+    /**
+     * Create an import job for a single LAF file sent as request body.
+     *
+     * Other than with import/async/laf, the file is neither Base64
+     * encoded nor embedded in JSON, which makes this suitable for large
+     * files. The encoding is taken from the charset parameter of the
+     * Content-Type header and defaults to ISO-8859-15.
+     *
+     * @param content The LAF file content
+     * @param fileName Name of the file used as key in the import result
+     * @param request The request
+     * @return Json object containing the refId of the new job
+     */
+    @POST
+    @Path("laf/file")
+    @Consumes({MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM})
+    public Response createAsyncFileImport(
+        InputStream content,
+        @QueryParam("filename") @DefaultValue("upload.laf") String fileName,
+        @Context HttpServletRequest request
+    ) {
+        JsonObjectBuilder errBuilder = Json.createObjectBuilder()
+            .add("success", false)
+            .add("status", StatusCodes.NOT_ALLOWED);
+
+        String mstId = request.getHeader("X-LADA-MST");
+        if (mstId == null) {
+            errBuilder.add("data", "Missing header for messtelle.");
+            return Response.ok(errBuilder.build().toString()).build();
+        }
+        MeasFacil mst = repository.getByIdPlain(MeasFacil.class, mstId);
+        if (mst == null) {
+            errBuilder.add("data", "Wrong header for messtelle.");
+            return Response.ok(errBuilder.build().toString()).build();
+        }
+
+        String encoding = request.getCharacterEncoding();
+        Charset charset;
+        try {
+            charset = Charset.forName(
+                encoding != null ? encoding : "iso-8859-15");
+        } catch (IllegalArgumentException e) {
+            errBuilder.add("status", StatusCodes.IMP_INVALID_VALUE)
+                .add("data", "No valid encoding name given");
+            return Response.ok(errBuilder.build().toString()).build();
+        }
+
+        UserInfo userInfo = authorization.getInfo();
+        String newJobId;
+        try {
+            newJobId = importJobManager.createImportJob(
+                userInfo, fileName, content, charset, mst);
+        } catch (IOException ioe) {
+            logger.error("Could not store uploaded file", ioe);
+            return Response.serverError().build();
+        }
+        JsonObject responseJson = Json.createObjectBuilder()
+            .add("refId", newJobId)
+            .build();
+        return Response.ok(responseJson.toString()).build();
+    }
+
     /**
      * Get the status of an export job.
      *
@@ -108,6 +177,8 @@ public class AsyncImportService extends LadaService {
      *    errors: boolean
      *    warnings: boolean
      *    notifications: boolean
+     *    itemsDone: number of samples imported so far
+     *    itemsTotal: number of samples in files parsed so far
      *  }
      * </pre>
      *
@@ -13,6 +13,9 @@ import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -190,19 +193,20 @@ public class LafImportService extends LadaService {
                 "File content not in valid " + charset.name());
         }
 
+        List<ImportConf> config = new ArrayList<ImportConf>();
+        if (!"".equals(mstId)) {
+            QueryBuilder<ImportConf> builder = repository
+                .queryBuilder(ImportConf.class)
+                .and("measFacilId", mstId);
+            config = repository.filterPlain(builder.getQuery());
+        }
+        final List<ImportConf> importConfig = config;
+
         //Import each file
         files.forEach((fileName, content) -> {
             logLAFFile(mstId, content, charset);
 
-            List<ImportConf> config = new ArrayList<ImportConf>();
-            if (!"".equals(mstId)) {
-                QueryBuilder<ImportConf> builder = repository
-                    .queryBuilder(ImportConf.class)
-                    .and("measFacilId", mstId);
-                config = repository.filterPlain(builder.getQuery());
-            }
-
-            importer.doImport(content, userInfo, mstId, config);
+            importer.doImport(content, userInfo, mstId, importConfig);
 
             Map<String, Object> fileResponseData =
                 new HashMap<String, Object>();
@@ -350,30 +354,60 @@ public class LafImportService extends LadaService {
      * @param enc Charset used for writing LAF file
      */
     public static void logLAFFile(String mstId, String content, Charset enc) {
-        // Get logger for import logger
         Logger lafLogger = Logger.getLogger("import");
-
-        // Write laf file if debug enabled
-        if (lafLogger.isDebugEnabled()) {
-            DateFormat df = new SimpleDateFormat("yyyyMMddHHmmssS");
-            Date now = new Date();
-            // Create filename for imported laf
-            String fileName = df.format(now) + "-" + mstId + ".laf";
-
-            // Retrive path set for import logger
-            String logDir = System.getProperty("jboss.server.log.dir");
-            // Set default log path as fallback
-            String filePath = logDir != null ? logDir : "/var/log/wildfly/";
-
-            lafLogger.debug("X-LADA-MST: " + mstId);
-            lafLogger.debug(
-                "Imported file logged to: " + filePath + "/" + fileName);
-            try (FileWriter f = new FileWriter(
-                    filePath + "/" + fileName, enc)) {
+        String logFile = getLAFLogFile(lafLogger, mstId);
+        if (logFile != null) {
+            try (FileWriter f = new FileWriter(logFile, enc)) {
                 f.write(content);
             } catch (IOException e) {
-                lafLogger.debug("Could not write import file to " + filePath);
+                lafLogger.debug("Could not write import file " + logFile);
             }
         }
     }
+
+    /**
+     * Log the imported file for debugging purposes.
+     *
+     * @param mstId Id from Header
+     * @param file The laf file, which is copied as is
+     */
+    public static void logLAFFile(String mstId, Path file) {
+        Logger lafLogger = Logger.getLogger("import");
+        String logFile = getLAFLogFile(lafLogger, mstId);
+        if (logFile != null) {
+            try {
+                Files.copy(file, Paths.get(logFile));
+            } catch (IOException e) {
+                lafLogger.debug("Could not write import file " + logFile);
+            }
+        }
+    }
+
+    /**
+     * Get the path to log an imported file to.
+     *
+     * @param lafLogger The import logger
+     * @param mstId Id from Header
+     * @return The path or null if debug logging is disabled
+     */
+    private static String getLAFLogFile(Logger lafLogger, String mstId) {
+        // Write laf file if debug enabled
+        if (!lafLogger.isDebugEnabled()) {
+            return null;
+        }
+        DateFormat df = new SimpleDateFormat("yyyyMMddHHmmssS");
+        Date now = new Date();
+        // Create filename for imported laf
+        String fileName = df.format(now) + "-" + mstId + ".laf";
+
+        // Retrive path set for import logger
+        String logDir = System.getProperty("jboss.server.log.dir");
+        // Set default log path as fallback
+        String filePath = logDir != null ? logDir : "/var/log/wildfly/";
+
+        lafLogger.debug("X-LADA-MST: " + mstId);
+        lafLogger.debug(
+            "Imported file logged to: " + filePath + "/" + fileName);
+        return filePath + "/" + fileName;
+    }
 }
@@ -8,15 +8,15 @@
 
 package de.intevation.lada.exporter;
 
-import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Locale;
 
 import javax.json.JsonObject;
@@ -29,8 +29,6 @@ import de.intevation.lada.util.data.Job;
  */
 public abstract class ExportJob extends Job {
 
-    private static final int LENGTH = 1024;
-
     /**
      * Result encoding.
      */
@@ -160,6 +158,36 @@ public abstract class ExportJob extends Job {
         }
     }
 
+    /**
+     * Create the file the export result is written to.
+     *
+     * The path of the created file is stored as outputFilePath.
+     * @throws IOException if the file cannot be created
+     */
+    protected void createResultFile() throws IOException {
+        this.outputFilePath =
+            File.createTempFile("export-", "." + this.format).toPath();
+        logger.debug(String.format(
+                "Writing result to file %s", outputFilePath));
+    }
+
+    /**
+     * Create the result file and open a writer for it using the
+     * export's encoding.
+     *
+     * The caller is responsible for closing the writer.
+     * @return Writer for the result file
+     * @throws RuntimeException if the file cannot be created or opened
+     */
+    protected Writer newResultFileWriter() {
+        try {
+            createResultFile();
+            return Files.newBufferedWriter(outputFilePath, encoding);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
+    }
+
     /**
      * Write the export result to a file.
      * @param exported Result InputStream to export
@@ -167,26 +195,11 @@ public abstract class ExportJob extends Job {
      * or writing it fails.
     */
     protected void writeResultToFile(InputStream exported) {
-        try {
-            //Create file
-            this.outputFilePath =
-                File.createTempFile("export-", "." + this.format).toPath();
-            logger.debug(String.format(
-                    "Writing result to file %s", outputFilePath));
-
-            //Write to file
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            byte[] buffer = new byte[LENGTH];
-            int length;
-
-            while ((length = exported.read(buffer)) != -1) {
-                result.write(buffer, 0, length);
-            }
-
-            try (BufferedWriter writer =
-                Files.newBufferedWriter(outputFilePath, encoding)) {
-                writer.write(new String(result.toByteArray(), encoding));
-            }
+        try (exported) {
+            createResultFile();
+            Files.copy(
+                exported, outputFilePath,
+                StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException ioe) {
             throw new RuntimeException(ioe);
         }
@@ -7,7 +7,9 @@
  */
 package de.intevation.lada.exporter;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.util.List;
@@ -94,4 +96,40 @@ public interface Exporter {
     ) {
         return null;
     }
+
+    /**
+     * Export a query result by writing it directly to the given writer.
+     *
+     * In contrast to the export method returning an InputStream,
+     * implementations of this method should not hold the complete export
+     * in memory, allowing to export large results with constant memory use.
+     *
+     * Note: This method may not be implemented by the implementing class.
+     * The default implementation throws UnsupportedOperationException.
+     * @param result Result to export as iterable of maps. Every item
+     *               represents a row,
+     *               while every map key represents a column
+     * @param output Writer the export is written to. The writer is
+     *               not closed by this method.
+     * @param options Export options. Depend on the actual output format
+     * @param columnsToInclude List of column names to include in the export.
+     *                         If not set, all columns will be exported
+     * @param subDataKey Key for subData in JSON format
+     * @param qId Query id
+     * @param dateFormat DateFormat for timestamp formatting
+     * @param locale Locale to use
+     * @throws IOException if writing to output fails
+     */
+    default void export(
+        Iterable<Map<String, Object>> result,
+        Writer output,
+        JsonObject options,
+        List<String> columnsToInclude,
+        String subDataKey,
+        Integer qId,
+        DateFormat dateFormat,
+        Locale locale
+    ) throws IOException {
+        throw new UnsupportedOperationException();
+    }
 }
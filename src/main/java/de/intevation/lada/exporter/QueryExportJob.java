@@ -18,7 +18,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.inject.Inject;
 import javax.json.JsonArray;
 import javax.json.JsonNumber;
 import javax.json.JsonObject;
@@ -38,6 +41,7 @@ import de.intevation.lada.model.master.Measd;
 import de.intevation.lada.model.master.StatusLev;
 import de.intevation.lada.model.master.StatusMp;
 import de.intevation.lada.model.master.StatusVal;
+import de.intevation.lada.query.QueryTemplateCache;
 import de.intevation.lada.query.QueryTools;
 import de.intevation.lada.util.data.QueryBuilder;
 
@@ -47,6 +51,17 @@ import de.intevation.lada.util.data.QueryBuilder;
  */
 public abstract class QueryExportJob extends ExportJob {
 
+    /**
+     * Number of rows fetched from the database at once.
+     */
+    protected static final int FETCH_SIZE = 1000;
+
+    /**
+     * Cache of query configuration and prepared SQL.
+     */
+    @Inject
+    protected QueryTemplateCache templateCache;
+
     /**
      * True if subdata shall be fetched from the database and exported.
      */
@@ -153,19 +168,32 @@ public abstract class QueryExportJob extends ExportJob {
 
     /**
      * Execute query to fetch export data and merge sub-data, if requested.
+     *
+     * Without sub-data, rows are fetched from the database in chunks of
+     * FETCH_SIZE while the returned stream is consumed. Merging sub-data
+     * requires all primary records to be loaded, though.
+     *
+     * The returned stream has to be closed after use.
      * @return Query result, including sub-data, if requested.
      */
-    protected Collection<Map<String, Object>> getExportData() {
+    protected Stream<Map<String, Object>> streamExportData() {
         parseExportParameters();
 
-        QueryTools queryTools = new QueryTools(repository, columns);
-        List<Map<String, Object>> primaryData = queryTools.getResultForQuery();
-        logger.debug(String.format(
-                "Fetched %d primary records",
-                primaryData == null ? 0 : primaryData.size()));
+        QueryTools queryTools = new QueryTools(
+            repository, templateCache, columns);
+        Stream<Map<String, Object>> primaryData =
+            queryTools.streamResultForQuery(FETCH_SIZE);
 
         if (exportSubdata) {
-            return mergeSubData(primaryData);
+            List<Map<String, Object>> primaryList;
+            try (primaryData) {
+                primaryList = primaryData.collect(Collectors.toList());
+            }
+            logger.debug(String.format(
+                    "Fetched %d primary records", primaryList.size()));
+            Collection<Map<String, Object>> merged =
+                mergeSubData(primaryList);
+            return merged == null ? null : merged.stream();
         }
         return primaryData;
     }
@@ -7,11 +7,14 @@
  */
 package de.intevation.lada.exporter.csv;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -151,16 +154,27 @@ public class CsvExportJob extends QueryExportJob {
      */
     @Override
     public void runWithTx() {
-        //Export data to csv
-        writeResultToFile(exporter.export(
-            getExportData(),
-            this.encoding,
-            this.exportParameters,
-            this.columnsToExport,
-            "",
-            this.qId,
-            this.dateFormat,
-            this.locale));
+        //Export data to csv, writing records directly to the result file
+        try (
+            Stream<Map<String, Object>> exportData = streamExportData();
+            Writer writer = newResultFileWriter()
+        ) {
+            if (exportData == null) {
+                throw new IllegalStateException(
+                    "Can not merge export data");
+            }
+            exporter.export(
+                exportData::iterator,
+                writer,
+                this.exportParameters,
+                this.columnsToExport,
+                "",
+                this.qId,
+                this.dateFormat,
+                this.locale);
+        } catch (IOException ioe) {
+            throw new RuntimeException(ioe);
+        }
 
         logger.debug(String.format("Finished CSV export"));
     }
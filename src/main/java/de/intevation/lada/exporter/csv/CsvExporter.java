@@ -11,7 +11,8 @@ package de.intevation.lada.exporter.csv;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
@@ -137,6 +138,54 @@ public class CsvExporter implements Exporter {
      *                    while every map key represents a column
      * @param encoding Encoding to use
      * @param options Optional export options as JSON Object.
+     *                See {@link #export(Iterable, Writer, JsonObject, List,
+     *                String, Integer, DateFormat, Locale)} for details.
+     *                Invalid options will cause the export to fail.
+     *
+     * @param columnsToInclude List of column names to include in the export.
+     *                         If not set, all columns will be exported
+     * @param qId query id
+     * @param locale Locale to use
+     * @return Export result as input stream or null if the export failed
+     */
+    @Override
+    public InputStream export(
+        Iterable<Map<String, Object>> queryResult,
+        Charset encoding,
+        JsonObject options,
+        List<String> columnsToInclude,
+        String subDataKey,
+        Integer qId,
+        DateFormat dateFormat,
+        Locale locale
+    ) {
+        StringWriter result = new StringWriter();
+        try {
+            export(queryResult, result, options, columnsToInclude,
+                subDataKey, qId, dateFormat, locale);
+            return new ByteArrayInputStream(
+                result.toString().getBytes(encoding));
+        } catch (IllegalArgumentException iae) {
+            return null;
+        } catch (IOException ioe) {
+            logger.error(ioe.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Export a query result by writing CSV records directly to the given
+     * writer.
+     *
+     * Each record is written as soon as it is read from queryResult,
+     * so the export does not need to be held in memory as a whole.
+     *
+     * @param queryResult Result to export as iterable of maps.
+     *                    Every item represents a row,
+     *                    while every map key represents a column
+     * @param output Writer to write the CSV records to.
+     *               The writer is flushed but not closed.
+     * @param options Optional export options as JSON Object.
      *                Valid options are "csvOptions" with: <p>
      *   <ul>
      *     <li> decimalSeparator: "comma" | "period", defaults to "period" </li>
@@ -148,25 +197,25 @@ public class CsvExporter implements Exporter {
      *   </ul>
      * and "subDataColumnNames": JsonObject containing dataIndex:
      * ColumnName key-value-pairs used to get readable column names
-     * Invalid options will cause the export to fail.
      *
      * @param columnsToInclude List of column names to include in the export.
      *                         If not set, all columns will be exported
      * @param qId query id
      * @param locale Locale to use
-     * @return Export result as input stream or null if the export failed
+     * @throws IllegalArgumentException in case of invalid options
+     * @throws IOException if writing to output fails
      */
     @Override
-    public InputStream export(
+    public void export(
         Iterable<Map<String, Object>> queryResult,
-        Charset encoding,
+        Writer output,
         JsonObject options,
         List<String> columnsToInclude,
         String subDataKey,
         Integer qId,
         DateFormat dateFormat,
         Locale locale
-    ) {
+    ) throws IOException {
         ResourceBundle i18n = ResourceBundle.getBundle(BUNDLE_FILE, locale);
 
         char decimalSeparator = CsvOptions.valueOf("period").getChar();
@@ -202,10 +251,10 @@ public class CsvExporter implements Exporter {
                     && !options.isNull(subDataColumnNamesKey)
                     ? options.getJsonObject(subDataColumnNamesKey) : null;
             } catch (IllegalArgumentException iae) {
-                logger.error(
-                    String.format(
-                        "Invalid CSV options: %s", options.toString()));
-                return null;
+                String msg = String.format(
+                    "Invalid CSV options: %s", options.toString());
+                logger.error(msg);
+                throw new IllegalArgumentException(msg, iae);
             }
         }
 
@@ -226,60 +275,41 @@ public class CsvExporter implements Exporter {
             .withRecordSeparator(rowDelimiter)
             .withHeader(header);
 
-        StringBuffer result = new StringBuffer();
-
-        try {
-            final CSVPrinter printer = new CSVPrinter(result, format);
-            //For every queryResult row
-            queryResult.forEach(row -> {
-                ArrayList<String> rowItems = new ArrayList<String>();
-                for (String key: columnsToInclude) {
-                    Object value = row.get(key);
+        final CSVPrinter printer = new CSVPrinter(output, format);
+        //For every queryResult row
+        for (Map<String, Object> row: queryResult) {
+            ArrayList<String> rowItems = new ArrayList<String>();
+            for (String key: columnsToInclude) {
+                Object value = row.get(key);
 
-                    //Value is a status kombi
-                    if (key.equals("statusK")) {
-                        rowItems.add(getStatusStringByid((Integer) value));
-                    } else if (key.equals("latitude")
-                        | key.equals("longitude")) {
-                        rowItems.add(value.toString());
-                    } else if (value instanceof Double) {
-                        decimalFormat.applyPattern("0.###E00");
-                        rowItems.add(decimalFormat.format((Double) value));
-                    } else if (value instanceof Float) {
-                        decimalFormat.applyPattern("###0.0#");
-                        rowItems.add(decimalFormat.format((Float) value));
-                    } else if (value instanceof Date) {
-                        //Convert to target timezone
-                        Date time = (Date) value;
-                        Calendar calendar = Calendar.getInstance();
-                        calendar.setTime(time);
-                        rowItems.add(dateFormat.format(calendar.getTime()));
-                    } else if (value instanceof Boolean) {
-                        rowItems.add(value != null
-                            ? i18n.getString(value.toString()) : null);
-                    } else {
-                        rowItems.add(value != null ? value.toString() : null);
-                    }
+                //Value is a status kombi
+                if (key.equals("statusK")) {
+                    rowItems.add(getStatusStringByid((Integer) value));
+                } else if (key.equals("latitude")
+                    | key.equals("longitude")) {
+                    rowItems.add(value.toString());
+                } else if (value instanceof Double) {
+                    decimalFormat.applyPattern("0.###E00");
+                    rowItems.add(decimalFormat.format((Double) value));
+                } else if (value instanceof Float) {
+                    decimalFormat.applyPattern("###0.0#");
+                    rowItems.add(decimalFormat.format((Float) value));
+                } else if (value instanceof Date) {
+                    //Convert to target timezone
+                    Date time = (Date) value;
+                    Calendar calendar = Calendar.getInstance();
+                    calendar.setTime(time);
+                    rowItems.add(dateFormat.format(calendar.getTime()));
+                } else if (value instanceof Boolean) {
+                    rowItems.add(value != null
+                        ? i18n.getString(value.toString()) : null);
+                } else {
+                    rowItems.add(value != null ? value.toString() : null);
                 }
-                try {
-                    printer.printRecord(rowItems);
-                } catch (IOException ioe) {
-                    logger.error(
-                        String.format(
-                            "Error on printing records: %s", ioe.toString()));
-                }
-            });
-
-            printer.close();
-            return new ByteArrayInputStream(
-                result.toString().getBytes(encoding));
-        } catch (UnsupportedEncodingException uee) {
-            logger.error(
-                String.format("Unsupported encoding: %s", encoding.name()));
-            return null;
-        } catch (IOException ioe) {
-            logger.error(ioe.toString());
-            return null;
+            }
+            printer.printRecord(rowItems);
         }
+        // Do not close the printer, as this would close output
+        printer.flush();
     }
 }
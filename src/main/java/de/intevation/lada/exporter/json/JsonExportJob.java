@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -100,15 +101,19 @@ public class JsonExportJob extends QueryExportJob {
     @Override
     public void runWithTx() {
         //Export data to json
-        writeResultToFile(exporter.export(
-            getExportData(),
-            this.encoding,
-            this.exportParameters,
-            this.columnsToExport,
-            ID_TYPE_TO_SUBDATA_KEY.get(this.idType),
-            this.qId,
-            this.dateFormat,
-            null));
+        try (Stream<Map<String, Object>> exportData = streamExportData()) {
+            Iterable<Map<String, Object>> rows =
+                exportData == null ? null : exportData::iterator;
+            writeResultToFile(exporter.export(
+                rows,
+                this.encoding,
+                this.exportParameters,
+                this.columnsToExport,
+                ID_TYPE_TO_SUBDATA_KEY.get(this.idType),
+                this.qId,
+                this.dateFormat,
+                null));
+        }
 
         logger.debug(String.format("Finished JSON export"));
     }
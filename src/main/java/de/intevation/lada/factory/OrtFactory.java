@@ -11,17 +11,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
-import javax.persistence.Query;
+import javax.transaction.Transactional;
+
 import org.jboss.logging.Logger;
 
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 
+import de.intevation.lada.importer.MasterDataLookup;
 import de.intevation.lada.importer.ReportItem;
 import de.intevation.lada.model.master.AdminUnit;
 import de.intevation.lada.model.master.Site;
 import de.intevation.lada.model.master.State;
+import de.intevation.lada.util.data.AdminBorderIndex;
 import de.intevation.lada.util.data.KdaUtil;
 import de.intevation.lada.util.data.QueryBuilder;
 import de.intevation.lada.util.data.Repository;
@@ -43,6 +46,11 @@ public class OrtFactory {
     @Inject
     private Repository repository;
 
+    @Inject
+    private AdminBorderIndex adminBorderIndex;
+
+    private MasterDataLookup lookup;
+
     private List<ReportItem> errors;
 
     /**
@@ -133,7 +141,7 @@ public class OrtFactory {
                     return orte.get(0);
                 } else {
                     //get verwaltungseinheiten
-                    AdminUnit v = repository.getByIdPlain(
+                    AdminUnit v = getById(
                         AdminUnit.class, ort.getAdminUnitId());
                     if (v != null) {
                         for (Site oElem : orte) {
@@ -187,7 +195,7 @@ public class OrtFactory {
             if (ort.getStateId() == null) {
                 ort.setStateId(0);
             }
-            AdminUnit v = repository.getByIdPlain(
+            AdminUnit v = getById(
                 AdminUnit.class, ort.getAdminUnitId());
             //Ort exists - check for OrtId
             QueryBuilder<Site> builderExists =
@@ -260,9 +268,7 @@ public class OrtFactory {
             && !hasKoord
             && !hasGem
         ) {
-            State staat =
-                repository.getByIdPlain(
-                    State.class, ort.getStateId());
+            State staat = getById(State.class, ort.getStateId());
             ort.setSpatRefSysId(staat.getSpatRefSysId());
             ort.setCoordXExt(staat.getCoordXExt());
             ort.setCoordYExt(staat.getCoordYExt());
@@ -289,6 +295,40 @@ public class OrtFactory {
         return ort;
     }
 
+    /**
+     * Persist a new ort object in a transaction of its own.
+     *
+     * Orte with an ext_id created by completeOrt() are shared by
+     * concurrent imports, e.g. the ort of a municipality. Creating them
+     * is serialized by an advisory lock on network and ext_id, and an ort
+     * created by a concurrent transaction in the meantime is used instead.
+     * Committing immediately avoids waiting for the transaction of the
+     * caller to release the unique key of the new ort.
+     *
+     * @param ort The new ort, which is detached afterwards
+     * @return The ID of the new or existing ort
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Integer persistOrt(Site ort) {
+        if (ort.getExtId() != null) {
+            repository.queryFromString(
+                "SELECT pg_advisory_xact_lock(hashtext(:key))")
+                .setParameter("key", String.format(
+                        "master.site %s %s",
+                        ort.getNetworkId(), ort.getExtId()))
+                .getSingleResult();
+            QueryBuilder<Site> builder = repository.queryBuilder(Site.class)
+                .and("networkId", ort.getNetworkId())
+                .and("extId", ort.getExtId());
+            List<Site> orte = repository.filterPlain(builder.getQuery());
+            if (!orte.isEmpty()) {
+                return orte.get(0).getId();
+            }
+        }
+        repository.create(ort);
+        return ort.getId();
+    }
+
     /**
      * Use the geom of an ort object to determine the verwaltungseinheit.
      * If verwaltungseinheit was found the gemId is used as reference in the ort
@@ -300,15 +340,9 @@ public class OrtFactory {
         if (ort.getGeom() == null) {
             return;
         }
-        Query q = repository.entityManager()
-            .createNativeQuery("SELECT vg.munic_id "
-                + "FROM master.admin_border_view vg "
-                + "WHERE is_munic = TRUE "
-                + "AND public.st_contains(vg.shape, :geom) = TRUE");
-        q.setParameter("geom", ort.getGeom());
-        List<?> ret = q.getResultList();
-        if (!ret.isEmpty()) {
-            ort.setAdminUnitId(ret.get(0).toString());
+        String municId = adminBorderIndex.findMunicId(ort.getGeom());
+        if (municId != null) {
+            ort.setAdminUnitId(municId);
             ort.setStateId(0);
         }
         return;
@@ -322,6 +356,21 @@ public class OrtFactory {
         return geom;
     }
 
+    /**
+     * Use given lookup cache for master data, e.g. during an import.
+     *
+     * @param lookup The lookup cache or null to query the database directly
+     */
+    public void setLookup(MasterDataLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    private <T> T getById(Class<T> clazz, Object id) {
+        return lookup != null
+            ? lookup.getById(clazz, id)
+            : repository.getByIdPlain(clazz, id);
+    }
+
     public List<ReportItem> getErrors() {
         return errors;
     }
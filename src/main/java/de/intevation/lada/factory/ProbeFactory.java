@@ -19,6 +19,7 @@ import javax.inject.Inject;
 
 import org.jboss.logging.Logger;
 
+import de.intevation.lada.importer.MasterDataLookup;
 import de.intevation.lada.model.lada.CommSample;
 import de.intevation.lada.model.lada.Geolocat;
 import de.intevation.lada.model.lada.GeolocatMpg;
@@ -32,6 +33,7 @@ import de.intevation.lada.model.master.EnvDescrip;
 import de.intevation.lada.model.master.EnvDescripEnvMediumMp;
 import de.intevation.lada.model.master.SampleSpecif;
 import de.intevation.lada.model.master.Site;
+import de.intevation.lada.util.data.EnvDescripIndex;
 import de.intevation.lada.util.data.QueryBuilder;
 import de.intevation.lada.util.data.Repository;
 
@@ -46,8 +48,6 @@ public class ProbeFactory {
 
     private static final int LM12 = 12;
 
-    private static final int POS9 = 9;
-
     private static final int ZEBS3 = 3;
 
     private static final int ZEBS5 = 5;
@@ -304,6 +304,20 @@ public class ProbeFactory {
     @Inject
     private Repository repository;
 
+    @Inject
+    private EnvDescripIndex envDescripIndex;
+
+    private MasterDataLookup lookup;
+
+    /**
+     * Use given lookup cache for master data, e.g. during an import.
+     *
+     * @param lookup The lookup cache or null to query the database directly
+     */
+    public void setLookup(MasterDataLookup lookup) {
+        this.lookup = lookup;
+    }
+
     /**
      * Create a list of probe objects.
      *
@@ -465,13 +479,15 @@ public class ProbeFactory {
         Set<SampleSpecif> pZusatzs = messprogramm.getSampleSpecifs();
         List<String> zusatzWerts = new ArrayList<String>();
         if (pZusatzs != null) {
+            List<SampleSpecifMeasVal> zusatzs = new ArrayList<>();
             for (SampleSpecif pZusatz: pZusatzs) {
                 SampleSpecifMeasVal zusatz = new SampleSpecifMeasVal();
                 zusatz.setSampleId(probe.getId());
                 zusatz.setSampleSpecifId(pZusatz.getId());
-                createObject(zusatz, dryrun);
+                zusatzs.add(zusatz);
                 zusatzWerts.add(zusatz.getSampleSpecifId());
             }
+            createObjects(zusatzs, dryrun);
         }
 
         if (messprogramm.getCommSample() != null
@@ -493,6 +509,7 @@ public class ProbeFactory {
             messung.setMmtId(mmt.getMmtId());
             messung.setSampleId(probe.getId());
             createObject(messung, dryrun);
+            List<MeasVal> werte = new ArrayList<>();
             for (int mw : mmt.getMeasds()) {
                 MeasVal wert = new MeasVal();
                 wert.setMeasdId(mw);
@@ -502,9 +519,11 @@ public class ProbeFactory {
                 } else {
                     wert.setMeasUnitId(0);
                 }
-                createObject(wert, dryrun);
+                werte.add(wert);
             }
+            createObjects(werte, dryrun);
         }
+        List<Geolocat> orteP = new ArrayList<>();
         for (GeolocatMpg ort : orte) {
             Geolocat ortP = new Geolocat();
             ortP.setTypeRegulation(ort.getTypeRegulation());
@@ -512,8 +531,9 @@ public class ProbeFactory {
             ortP.setSiteId(ort.getSiteId());
             ortP.setPoiId(ort.getPoiId());
             ortP.setAddSiteText(ort.getAddSiteText());
-            createObject(ortP, dryrun);
+            orteP.add(ortP);
         }
+        createObjects(orteP, dryrun);
         // Reolad the probe to have the old id
         if (!dryrun) {
             probe = (Sample) repository.getById(
@@ -529,6 +549,12 @@ public class ProbeFactory {
         }
     }
 
+    private void createObjects(List<?> items, boolean dryrun) {
+        if (!dryrun) {
+            repository.createAll(items);
+        }
+    }
+
     /**
      * Search for the umwelt id using the 'deskriptor'.
      *
@@ -558,17 +584,24 @@ public class ProbeFactory {
     public Sample findMedia(Sample probe) {
         String mediaDesk = probe.getEnvDescripDisplay();
         if (mediaDesk != null) {
-            Object result = repository.queryFromString(
-                "SELECT "
-                + de.intevation.lada.model.master.SchemaName.NAME
-                + ".get_media_from_media_desk( :mediaDesk );")
-                    .setParameter("mediaDesk", mediaDesk)
-                    .getSingleResult();
-            probe.setEnvDescripName(result != null ? result.toString() : "");
+            probe.setEnvDescripName(lookup != null
+                ? lookup.get(
+                    List.of("media", mediaDesk), () -> getMedia(mediaDesk))
+                : getMedia(mediaDesk));
         }
         return probe;
     }
 
+    private String getMedia(String mediaDesk) {
+        Object result = repository.queryFromString(
+            "SELECT "
+            + de.intevation.lada.model.master.SchemaName.NAME
+            + ".get_media_from_media_desk( :mediaDesk );")
+                .setParameter("mediaDesk", mediaDesk)
+                .getSingleResult();
+        return result != null ? result.toString() : "";
+    }
+
     /**
      * Search for the umwelt id using the 'deskriptor'.
      *
@@ -617,21 +650,15 @@ public class ProbeFactory {
             } else {
                 parent = ndParent;
             }
-            QueryBuilder<EnvDescrip> builder =
-                repository.queryBuilder(EnvDescrip.class);
-            if (parent != null) {
-                builder.and("predId", parent);
-            }
-            builder.and("levVal", mediaDesk[i]);
-            builder.and("lev", i - 1);
-            List<EnvDescrip> data = repository.filterPlain(builder.getQuery());
-            if (data.isEmpty()) {
+            EnvDescrip data =
+                envDescripIndex.getDescriptor(parent, i - 1, mediaDesk[i]);
+            if (data == null) {
                 return null;
             }
-            hdParent = data.get(0).getId();
-            mediaIds.add(data.get(0).getId());
+            hdParent = data.getId();
+            mediaIds.add(data.getId());
             if (i == 2) {
-                ndParent = data.get(0).getId();
+                ndParent = data.getId();
             }
         }
         return getUmwelt(mediaIds, zebs);
@@ -646,27 +673,18 @@ public class ProbeFactory {
      * @return The umwelt id or an empty string.
      */
     private String getUmwelt(List<Integer> media, boolean isZebs) {
-        QueryBuilder<EnvDescripEnvMediumMp> builder =
-            repository.queryBuilder(EnvDescripEnvMediumMp.class);
-
         if (media.size() == 0) {
             return null;
         }
 
         int size = 1;
+        Integer[] levels = new Integer[media.size()];
         for (int i = 0; i < media.size(); i++) {
-            String field = "s" + (i > POS9 ? i : "0" + i);
-            QueryBuilder<EnvDescripEnvMediumMp> tmp = builder.getEmptyBuilder();
-            if (media.get(i) != -1) {
-                tmp.and(field, media.get(i));
-                tmp.or(field, null);
-                builder.and(tmp);
-            } else {
-                builder.and(field, null);
-            }
+            levels[i] = media.get(i) != -1
+                ? media.get(i) : EnvDescripIndex.EMPTY;
         }
-        List<EnvDescripEnvMediumMp> data
-            = repository.filterPlain(builder.getQuery());
+        List<EnvDescripEnvMediumMp> data =
+            envDescripIndex.findMappings(levels);
         if (data.isEmpty()) {
             return null;
         }
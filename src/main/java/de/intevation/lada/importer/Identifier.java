@@ -29,4 +29,12 @@ public interface Identifier {
      * @return the found object
      */
     Object getExisting();
+
+    /**
+     * Use the given index to look up existing objects, where possible,
+     * instead of querying the database for each object.
+     * @param index The index or null to always query the database
+     */
+    default void setIndex(IdentifierIndex index) {
+    }
 }
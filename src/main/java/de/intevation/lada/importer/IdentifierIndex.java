@@ -0,0 +1,290 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import de.intevation.lada.model.lada.Measm;
+import de.intevation.lada.util.data.Repository;
+
+/**
+ * Index of keys of existing samples and measurements to be identified
+ * during an import.
+ *
+ * The keys identifying samples are collected upfront and resolved with
+ * a few set-based queries. Identifiers then look up the IDs of existing
+ * objects from the index instead of querying the database for each
+ * object, and load only the objects found. Lookups of keys not contained
+ * in the index return null, in which case the database has to be queried.
+ *
+ * Since the import creates and changes objects, a key is removed from
+ * the index once its sample has been identified. Measurements created or
+ * changed during the import have to be put into the index again with
+ * putMeasm().
+ *
+ * Instances are not thread-safe.
+ */
+public class IdentifierIndex {
+
+    private final Repository repository;
+
+    private final Map<String, Integer> sampleIdsByExtId = new HashMap<>();
+
+    private final Map<List<String>, Integer> sampleIdsByMainSampleId =
+        new HashMap<>();
+
+    private final Map<Integer, Map<Integer, MeasmKeys>> measmsBySampleId =
+        new HashMap<>();
+
+    /**
+     * Keys identifying a measurement of a sample.
+     */
+    private static final class MeasmKeys {
+        private final Integer extId;
+        private final String minSampleId;
+        private final String mmtId;
+
+        MeasmKeys(Integer extId, String minSampleId, String mmtId) {
+            this.extId = extId;
+            this.minSampleId = minSampleId;
+            this.mmtId = mmtId;
+        }
+
+        Object get(String attribute) {
+            switch (attribute) {
+            case "extId":
+                return extId;
+            case "minSampleId":
+                return minSampleId;
+            case "mmtId":
+                return mmtId;
+            default:
+                throw new IllegalArgumentException(
+                    "Not a key of Measm: " + attribute);
+            }
+        }
+    }
+
+    /**
+     * @param repository Repository used to load existing keys
+     */
+    public IdentifierIndex(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Load keys of existing samples with given keys and of their
+     * measurements.
+     *
+     * @param extIds External IDs of samples
+     * @param mainSampleIds Pairs of measurement facility ID and main
+     * sample ID of samples
+     */
+    public void addSamples(
+        Collection<String> extIds,
+        Collection<List<String>> mainSampleIds
+    ) {
+        addKeys(extIds, mainSampleIds);
+
+        Set<Integer> sampleIds = new HashSet<>();
+        for (List<String> values: Repository.partition(extIds)) {
+            for (Object[] row: repository.entityManager().createQuery(
+                    "SELECT s.id, s.extId FROM Sample s"
+                    + " WHERE s.extId IN :values", Object[].class)
+                .setParameter("values", values)
+                .getResultList()
+            ) {
+                putSample((Integer) row[0], (String) row[1], null, null);
+                sampleIds.add((Integer) row[0]);
+            }
+        }
+
+        Set<String> measFacilIds = new HashSet<>();
+        Set<String> mainSampleIdSet = new HashSet<>();
+        for (List<String> key: mainSampleIds) {
+            measFacilIds.add(key.get(0));
+            mainSampleIdSet.add(key.get(1));
+        }
+        for (List<String> values: Repository.partition(mainSampleIdSet)) {
+            for (Object[] row: repository.entityManager().createQuery(
+                    "SELECT s.id, s.measFacilId, s.mainSampleId"
+                    + " FROM Sample s WHERE s.measFacilId IN :measFacilIds"
+                    + " AND s.mainSampleId IN :values", Object[].class)
+                .setParameter("measFacilIds", measFacilIds)
+                .setParameter("values", values)
+                .getResultList()
+            ) {
+                // Query returns all combinations of the given values
+                if (sampleIdsByMainSampleId.containsKey(
+                        List.of((String) row[1], (String) row[2]))
+                ) {
+                    putSample(
+                        (Integer) row[0], null,
+                        (String) row[1], (String) row[2]);
+                    sampleIds.add((Integer) row[0]);
+                }
+            }
+        }
+
+        for (List<Integer> values: Repository.partition(sampleIds)) {
+            for (Object[] row: repository.entityManager().createQuery(
+                    "SELECT m.id, m.sampleId, m.extId, m.minSampleId, m.mmtId"
+                    + " FROM Measm m WHERE m.sampleId IN :values",
+                    Object[].class)
+                .setParameter("values", values)
+                .getResultList()
+            ) {
+                putMeasm(
+                    (Integer) row[0], (Integer) row[1], (Integer) row[2],
+                    (String) row[3], (String) row[4]);
+            }
+        }
+    }
+
+    /**
+     * Add keys of samples not existing, unless already contained.
+     *
+     * @param extIds External IDs of samples
+     * @param mainSampleIds Pairs of measurement facility ID and main
+     * sample ID of samples
+     */
+    void addKeys(
+        Collection<String> extIds,
+        Collection<List<String>> mainSampleIds
+    ) {
+        for (String extId: extIds) {
+            sampleIdsByExtId.putIfAbsent(extId, null);
+        }
+        for (List<String> key: mainSampleIds) {
+            sampleIdsByMainSampleId.putIfAbsent(key, null);
+        }
+    }
+
+    /**
+     * Add an existing sample with the given keys.
+     *
+     * @param id The sample ID
+     * @param extId The external ID or null
+     * @param measFacilId The measurement facility ID or null
+     * @param mainSampleId The main sample ID or null
+     */
+    void putSample(
+        Integer id,
+        String extId,
+        String measFacilId,
+        String mainSampleId
+    ) {
+        if (extId != null) {
+            sampleIdsByExtId.put(extId, id);
+        }
+        if (measFacilId != null && mainSampleId != null) {
+            sampleIdsByMainSampleId.put(
+                List.of(measFacilId, mainSampleId), id);
+        }
+        measmsBySampleId.putIfAbsent(id, new LinkedHashMap<>());
+    }
+
+    /**
+     * Find sample by external ID and remove the key from the index.
+     *
+     * @param extId The external ID
+     * @return List containing the sample ID if existing or null if the key
+     * is not contained in the index
+     */
+    public List<Integer> takeSampleIdByExtId(String extId) {
+        if (!sampleIdsByExtId.containsKey(extId)) {
+            return null;
+        }
+        return asList(sampleIdsByExtId.remove(extId));
+    }
+
+    /**
+     * Find sample by main sample ID and remove the key from the index.
+     *
+     * @param measFacilId The measurement facility ID
+     * @param mainSampleId The main sample ID
+     * @return List containing the sample ID if existing or null if the key
+     * is not contained in the index
+     */
+    public List<Integer> takeSampleIdByMainSampleId(
+        String measFacilId,
+        String mainSampleId
+    ) {
+        List<String> key = List.of(measFacilId, mainSampleId);
+        if (!sampleIdsByMainSampleId.containsKey(key)) {
+            return null;
+        }
+        return asList(sampleIdsByMainSampleId.remove(key));
+    }
+
+    /**
+     * Find measurements of a sample with given key.
+     *
+     * @param sampleId The sample ID
+     * @param attribute The key attribute, i.e. extId, minSampleId or mmtId
+     * @param value The key value
+     * @return IDs of matching measurements or null if the sample is not
+     * contained in the index
+     */
+    public List<Integer> findMeasmIds(
+        Integer sampleId,
+        String attribute,
+        Object value
+    ) {
+        Map<Integer, MeasmKeys> measms = measmsBySampleId.get(sampleId);
+        if (measms == null) {
+            return null;
+        }
+        List<Integer> ids = new ArrayList<>();
+        measms.forEach((id, keys) -> {
+            if (Objects.equals(keys.get(attribute), value)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Put keys of a created or changed measurement into the index.
+     *
+     * Has no effect if the sample of the measurement is not contained in
+     * the index.
+     *
+     * @param measm The measurement
+     */
+    public void putMeasm(Measm measm) {
+        putMeasm(
+            measm.getId(), measm.getSampleId(), measm.getExtId(),
+            measm.getMinSampleId(), measm.getMmtId());
+    }
+
+    private void putMeasm(
+        Integer id,
+        Integer sampleId,
+        Integer extId,
+        String minSampleId,
+        String mmtId
+    ) {
+        Map<Integer, MeasmKeys> measms = measmsBySampleId.get(sampleId);
+        if (measms != null) {
+            measms.put(id, new MeasmKeys(extId, minSampleId, mmtId));
+        }
+    }
+
+    private static <T> List<T> asList(T object) {
+        return object == null ? List.of() : List.of(object);
+    }
+}
@@ -8,6 +8,9 @@
 
 package de.intevation.lada.importer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -54,6 +57,35 @@ public class ImportJobManager extends JobManager {
         return addJob(newJob);
     }
 
+    /**
+     * Create a new import job for a single file.
+     *
+     * The file content is stored in a temporary file before the job
+     * is started.
+     * @param userInfo User info
+     * @param fileName Name of the file
+     * @param content File content
+     * @param encoding Encoding of the file content
+     * @param mst MessStelle
+     * @return New job refId
+     * @throws IOException if the file content cannot be stored
+     */
+    public String createImportJob(
+        UserInfo userInfo,
+        String fileName,
+        InputStream content,
+        Charset encoding,
+        MeasFacil mst
+    ) throws IOException {
+        LafImportJob newJob = lafImportJobProvider.get();
+        newJob.setUpload(fileName, content, encoding);
+        newJob.setUserInfo(userInfo);
+        newJob.setMst(mst);
+
+        newJob.setFuture(executor.submit(newJob));
+        return addJob(newJob);
+    }
+
     /**
      * Get the import result for the job with given refId.
      * @param id Refid
@@ -0,0 +1,152 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+
+import de.intevation.lada.util.data.QueryBuilder;
+import de.intevation.lada.util.data.Repository;
+
+/**
+ * Read-through cache for master data looked up during an import.
+ *
+ * Each distinct lookup is sent to the database at most once during the
+ * lifetime of an instance, which is the lifetime of the object it is
+ * injected into, e.g. an import job. Results are shared and must not be
+ * modified.
+ *
+ * Only use for master data not modified during the import.
+ * Instances are not thread-safe.
+ */
+public class MasterDataLookup {
+
+    @Inject
+    private Repository repository;
+
+    private final Map<List<Object>, Object> results = new HashMap<>();
+
+    /**
+     * Get object by id.
+     *
+     * @param <T> The type of the object
+     * @param clazz The class of the object
+     * @param id The id
+     * @return The object or null if not existing
+     */
+    public <T> T getById(Class<T> clazz, Object id) {
+        return get(
+            Arrays.asList(clazz, id),
+            () -> repository.getByIdPlain(clazz, id));
+    }
+
+    /**
+     * Get objects with given attribute value.
+     *
+     * @param <T> The type of the objects
+     * @param clazz The class of the objects
+     * @param attribute The attribute name
+     * @param value The attribute value
+     * @return Matching objects
+     */
+    public <T> List<T> filter(Class<T> clazz, String attribute, Object value) {
+        return query(clazz, new String[] {attribute}, value);
+    }
+
+    /**
+     * Get objects with given attribute values.
+     *
+     * @param <T> The type of the objects
+     * @param clazz The class of the objects
+     * @param attribute1 The first attribute name
+     * @param value1 The first attribute value
+     * @param attribute2 The second attribute name
+     * @param value2 The second attribute value
+     * @return Matching objects
+     */
+    public <T> List<T> filter(
+        Class<T> clazz,
+        String attribute1,
+        Object value1,
+        String attribute2,
+        Object value2
+    ) {
+        return query(
+            clazz, new String[] {attribute1, attribute2}, value1, value2);
+    }
+
+    /**
+     * Get objects with given attribute values.
+     *
+     * @param <T> The type of the objects
+     * @param clazz The class of the objects
+     * @param attribute1 The first attribute name
+     * @param value1 The first attribute value
+     * @param attribute2 The second attribute name
+     * @param value2 The second attribute value
+     * @param attribute3 The third attribute name
+     * @param value3 The third attribute value
+     * @return Matching objects
+     */
+    public <T> List<T> filter(
+        Class<T> clazz,
+        String attribute1,
+        Object value1,
+        String attribute2,
+        Object value2,
+        String attribute3,
+        Object value3
+    ) {
+        return query(
+            clazz,
+            new String[] {attribute1, attribute2, attribute3},
+            value1, value2, value3);
+    }
+
+    /**
+     * Get the result of an arbitrary lookup.
+     *
+     * @param <T> The type of the result
+     * @param key Key identifying the lookup, including its parameters
+     * @param loader Loads the result if not yet cached
+     * @return The result, which might be null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(List<Object> key, Supplier<T> loader) {
+        if (results.containsKey(key)) {
+            return (T) results.get(key);
+        }
+        T result = loader.get();
+        results.put(key, result);
+        return result;
+    }
+
+    private <T> List<T> query(
+        Class<T> clazz,
+        String[] attributes,
+        Object... values
+    ) {
+        List<Object> key = new ArrayList<>();
+        key.add(clazz);
+        key.addAll(Arrays.asList(attributes));
+        key.addAll(Arrays.asList(values));
+        return get(key, () -> {
+            QueryBuilder<T> builder = repository.queryBuilder(clazz);
+            for (int i = 0; i < attributes.length; i++) {
+                builder.and(attributes[i], values[i]);
+            }
+            return List.copyOf(repository.filterPlain(builder.getQuery()));
+        });
+    }
+}
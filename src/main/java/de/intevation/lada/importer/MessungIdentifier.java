@@ -7,6 +7,7 @@
  */
 package de.intevation.lada.importer;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -27,6 +28,8 @@ public class MessungIdentifier implements Identifier {
 
     private Measm found;
 
+    private IdentifierIndex index;
+
     @Override
     public Identified find(Object object)
     throws InvalidTargetObjectTypeException {
@@ -36,27 +39,22 @@ public class MessungIdentifier implements Identifier {
                 "Object is not of type Messung");
         }
         Measm messung = (Measm) object;
-        QueryBuilder<Measm> builder = repository.queryBuilder(Measm.class);
-
         // externeMessungsId null and nebenprobenNr not null and mstId not null.
         if (messung.getExtId() == null
             && messung.getMinSampleId() != null
         ) {
-            builder.and("sampleId", messung.getSampleId());
-            builder.and("minSampleId", messung.getMinSampleId());
-            List<Measm> messungen =
-                repository.filterPlain(builder.getQuery());
+            List<Measm> messungen = find(
+                messung.getSampleId(),
+                "minSampleId", messung.getMinSampleId());
             if (messungen.size() > 1) {
                 // Should never happen. DB has unique constraint for
                 // "nebenprobenNr"
                 return Identified.REJECT;
             }
             if (messungen.isEmpty()) {
-                builder = builder.getEmptyBuilder();
-                builder.and("sampleId", messung.getSampleId());
-                builder.and("mmtId", messung.getMmtId());
-                messungen =
-                    repository.filterPlain(builder.getQuery());
+                messungen = find(
+                    messung.getSampleId(),
+                    "mmtId", messung.getMmtId());
                 if (messungen.isEmpty()) {
                     return Identified.NEW;
                 }
@@ -73,10 +71,9 @@ public class MessungIdentifier implements Identifier {
             found = messungen.get(0);
             return Identified.UPDATE;
         } else if (messung.getExtId() != null) {
-            builder.and("sampleId", messung.getSampleId());
-            builder.and("extId", messung.getExtId());
-            List<Measm> messungen =
-                repository.filterPlain(builder.getQuery());
+            List<Measm> messungen = find(
+                messung.getSampleId(),
+                "extId", messung.getExtId());
             if (messungen.size() > 1) {
                 // Should never happen. DB has unique constraint for
                 // "externeMessungsId"
@@ -88,10 +85,9 @@ public class MessungIdentifier implements Identifier {
             found = messungen.get(0);
             return Identified.UPDATE;
         } else if (messung.getMmtId() != null) {
-            builder.and("sampleId", messung.getSampleId());
-            builder.and("mmtId", messung.getMmtId());
-            List<Measm> messungen =
-                repository.filterPlain(builder.getQuery());
+            List<Measm> messungen = find(
+                messung.getSampleId(),
+                "mmtId", messung.getMmtId());
             if (messungen.isEmpty()) {
                 return Identified.NEW;
             }
@@ -109,4 +105,37 @@ public class MessungIdentifier implements Identifier {
     public Object getExisting() {
         return found;
     }
+
+    @Override
+    public void setIndex(IdentifierIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Find measurements of a sample with given attribute value.
+     *
+     * @param sampleId The sample ID
+     * @param attribute The attribute name
+     * @param value The attribute value
+     * @return Matching measurements
+     */
+    private List<Measm> find(
+        Integer sampleId,
+        String attribute,
+        Object value
+    ) {
+        List<Integer> indexed = index != null
+            ? index.findMeasmIds(sampleId, attribute, value) : null;
+        if (indexed != null) {
+            List<Measm> result = new ArrayList<>();
+            for (Integer id: indexed) {
+                result.add(repository.getByIdPlain(Measm.class, id));
+            }
+            return result;
+        }
+        QueryBuilder<Measm> builder = repository.queryBuilder(Measm.class);
+        builder.and("sampleId", sampleId);
+        builder.and(attribute, value);
+        return repository.filterPlain(builder.getQuery());
+    }
 }
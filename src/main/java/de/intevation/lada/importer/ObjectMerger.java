@@ -265,18 +265,14 @@ public class ObjectMerger {
         List<MeasVal> found =
             repository.filterPlain(builder.getQuery());
         if (found.isEmpty()) {
-            for (int i = 0; i < messwerte.size(); i++) {
-                repository.create(messwerte.get(i));
-            }
+            repository.createAll(messwerte);
             return this;
         }
         try {
             for (int i = 0; i < found.size(); i++) {
                 repository.delete(found.get(i));
             }
-            for (int i = 0; i < messwerte.size(); i++) {
-                repository.create(messwerte.get(i));
-            }
+            repository.createAll(messwerte);
         } catch (SecurityException
             | IllegalStateException
             | PersistenceException e
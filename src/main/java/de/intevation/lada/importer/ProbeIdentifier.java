@@ -7,6 +7,7 @@
  */
 package de.intevation.lada.importer;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -27,6 +28,8 @@ public class ProbeIdentifier implements Identifier {
 
     private Sample found;
 
+    private IdentifierIndex index;
+
     @Override
     public Identified find(Object object)
     throws InvalidTargetObjectTypeException {
@@ -36,17 +39,14 @@ public class ProbeIdentifier implements Identifier {
                 "Object is not of type Sample");
         }
         Sample probe = (Sample) object;
-        QueryBuilder<Sample> builder = repository.queryBuilder(Sample.class);
 
         // extId null and mainSampleId not null and mstId not null.
         if (probe.getExtId() == null
             && probe.getMainSampleId() != null
             && probe.getMeasFacilId() != null
         ) {
-            builder.and("measFacilId", probe.getMeasFacilId());
-            builder.and("mainSampleId", probe.getMainSampleId());
-            List<Sample> proben =
-                repository.filterPlain(builder.getQuery());
+            List<Sample> proben = findByMainSampleId(
+                probe.getMeasFacilId(), probe.getMainSampleId());
             if (proben.size() > 1) {
                 // Should never happen. DB has unique constraint for
                 // "mainSampleId"
@@ -61,9 +61,7 @@ public class ProbeIdentifier implements Identifier {
             && (probe.getMainSampleId() == null
                 || probe.getMeasFacilId() == null)
         ) {
-            builder.and("extId", probe.getExtId());
-            List<Sample> proben =
-                repository.filterPlain(builder.getQuery());
+            List<Sample> proben = findByExtId(probe.getExtId());
             if (proben.size() > 1) {
                 // Should never happen. DB has unique constraint for
                 // "sampleExtId"
@@ -75,9 +73,7 @@ public class ProbeIdentifier implements Identifier {
             found = proben.get(0);
             return Identified.UPDATE;
         } else {
-            builder.and("extId", probe.getExtId());
-            List<Sample> proben =
-                repository.filterPlain(builder.getQuery());
+            List<Sample> proben = findByExtId(probe.getExtId());
             if (proben.size() > 1) {
                 // Should never happen. DB has unique constraint for
                 // "sampleExtId"
@@ -106,4 +102,46 @@ public class ProbeIdentifier implements Identifier {
     public Object getExisting() {
         return found;
     }
+
+    @Override
+    public void setIndex(IdentifierIndex index) {
+        this.index = index;
+    }
+
+    private List<Sample> findByMainSampleId(
+        String measFacilId,
+        String mainSampleId
+    ) {
+        if (index != null) {
+            List<Integer> indexed =
+                index.takeSampleIdByMainSampleId(measFacilId, mainSampleId);
+            if (indexed != null) {
+                return load(indexed);
+            }
+        }
+        QueryBuilder<Sample> builder = repository.queryBuilder(Sample.class);
+        builder.and("measFacilId", measFacilId);
+        builder.and("mainSampleId", mainSampleId);
+        return repository.filterPlain(builder.getQuery());
+    }
+
+    private List<Sample> findByExtId(String extId) {
+        if (index != null) {
+            List<Integer> indexed = index.takeSampleIdByExtId(extId);
+            if (indexed != null) {
+                return load(indexed);
+            }
+        }
+        QueryBuilder<Sample> builder = repository.queryBuilder(Sample.class);
+        builder.and("extId", extId);
+        return repository.filterPlain(builder.getQuery());
+    }
+
+    private List<Sample> load(List<Integer> ids) {
+        List<Sample> samples = new ArrayList<>();
+        for (Integer id: ids) {
+            samples.add(repository.getByIdPlain(Sample.class, id));
+        }
+        return samples;
+    }
 }
@@ -19,16 +19,12 @@ import de.intevation.lada.util.data.StatusCodes;
 
 /**
  * Listener to track errors in parser.
+ *
+ * Use one instance per parse. Instances are not thread-safe.
  */
 public class LafErrorListener extends BaseErrorListener {
 
-    /**
-     * The instance of the listener.
-     */
-    public static final LafErrorListener INSTANCE =
-        new LafErrorListener();
-
-    private List<ReportItem> errors = new ArrayList<ReportItem>();
+    private final List<ReportItem> errors = new ArrayList<ReportItem>();
 
     @Override
     public void syntaxError(
@@ -52,12 +48,8 @@ public class LafErrorListener extends BaseErrorListener {
     }
 
     /**
-     * Reset the list of errors.
+     * @return Errors reported by the parser
      */
-    public void reset() {
-        this.errors.clear();
-    }
-
     public List<ReportItem> getErrors() {
         return this.errors;
     }
@@ -10,15 +10,39 @@ package de.intevation.lada.importer.laf;
 
 import static de.intevation.lada.data.LafImportService.logLAFFile;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonObject;
@@ -26,6 +50,7 @@ import javax.json.JsonObjectBuilder;
 import javax.json.JsonString;
 import javax.json.JsonValue;
 
+import de.intevation.lada.importer.ReportItem;
 import de.intevation.lada.model.master.ImportConf;
 import de.intevation.lada.model.master.MeasFacil;
 import de.intevation.lada.model.master.Tag;
@@ -38,12 +63,36 @@ import de.intevation.lada.util.rest.Response;
 /**
  * Asynchronous import job.
  *
+ * Multiple files are imported concurrently, each with its own importer.
+ * Files containing the same samples are imported sequentially.
+ * Orte shared by files, e.g. those of municipalities, are created in
+ * transactions of their own (see OrtFactory.persistOrt()).
+ * Samples are imported in chunks of CHUNK_SIZE, each tagged and
+ * committed in its own transaction. If the job fails, samples committed
+ * so far are reported in the import data. The number of imported
+ * samples is reported as progress of the job.
+ *
  * @author Alexander Woestmann <awoestmann@intevation.de>
  */
 public class LafImportJob extends Job {
 
+    private static final int BYTE_ORDER_MARK = '\uFEFF';
+
+    // Number of samples imported per transaction
+    private static final int CHUNK_SIZE = 100;
+
+    // Lines with values identifying a sample. Keywords are case
+    // insensitive and values might be quoted.
+    private static final Pattern SAMPLE_KEY = Pattern.compile(
+        "^[ \\t]*(PROBE_ID|HAUPTPROBENNUMMER)[ \\t]+"
+        + "(?:\"([^\"]*)\"|([^ \\t\"\\r\\n]+))",
+        Pattern.MULTILINE | Pattern.CASE_INSENSITIVE);
+
     @Inject
-    private LafImporter importer;
+    private Instance<LafImporter> importers;
+
+    @Resource
+    private ManagedExecutorService executor;
 
     private Map<String, Map<String, Object>> importData;
 
@@ -53,9 +102,26 @@ public class LafImportJob extends Job {
 
     private JsonObject result;
 
+    private String uploadFileName;
+
+    private Path uploadFilePath;
+
+    private Charset uploadEncoding;
+
+    private String mstId;
+
+    private List<ImportConf> config;
+
+    // Progress of all files imported
+    private final AtomicInteger samplesDone = new AtomicInteger();
+    private final AtomicInteger samplesTotal = new AtomicInteger();
+
     @Inject
     private TagUtil tagUtil;
 
+    // Tag for samples imported by this job
+    private Tag importTag;
+
     public void cleanup() {
         //Intentionally left blank
     }
@@ -90,120 +156,474 @@ public class LafImportJob extends Job {
     public void runWithTx() {
         logger.debug("Starting LAF import");
 
-        //Get file content strings from input object
-        JsonObject filesObject = jsonInput.getJsonObject("files");
+        mstId = this.mst.getId();
+        config = new ArrayList<ImportConf>();
+        if (!"".equals(mstId)) {
+            QueryBuilder<ImportConf> builder =
+                repository.queryBuilder(ImportConf.class);
+            builder.and("measFacilId", mstId);
+            config = repository.filterPlain(builder.getQuery());
+        }
 
-        // TODO: handle this upfront in the service
-        Charset charset;
-        try {
-            charset = Charset.forName(jsonInput.getString("encoding"));
-        } catch (IllegalArgumentException e) {
-            result = createResult(
-                false,
-                StatusCodes.IMP_INVALID_VALUE,
-                "No valid encoding name given");
-            return;
-        }
-
-        //Contains: fileName: fileContent as String
-        Map<String, String> files = new HashMap<String, String>();
-        //Ids of alle imported probe records
-        List<Integer> importedProbeids = new ArrayList<Integer>();
-        //Contains a response data object for every import
-        Map<String, Map<String, Object>> importResponseData =
-            new HashMap<String, Map<String, Object>>();
+        List<ImportUnit> units = new ArrayList<>();
+        if (uploadFilePath != null) {
+            logLAFFile(mstId, uploadFilePath);
+            units.add(new ImportUnit(uploadFileName, () -> {
+                BufferedReader reader = Files.newBufferedReader(
+                    uploadFilePath, uploadEncoding);
+                // Skip byte order mark if present
+                reader.mark(1);
+                if (reader.read() != BYTE_ORDER_MARK) {
+                    reader.reset();
+                }
+                return reader;
+            }));
+        } else {
+            //Get file content strings from input object
+            JsonObject filesObject = jsonInput.getJsonObject("files");
 
-        // TODO: Handle this upfront in the service
-        try {
-            for (Map.Entry<String, JsonValue> e : filesObject.entrySet()) {
-                String base64String = ((JsonString) e.getValue()).getString();
-                ByteBuffer decodedBytes = ByteBuffer.wrap(
-                    Base64.getDecoder().decode(base64String));
-                String decodedContent = new String(
-                    new StringBuffer(charset.newDecoder()
-                        .decode(decodedBytes)));
-                files.put(e.getKey(), decodedContent);
-            }
-        } catch (IllegalArgumentException iae) {
-            String msg = "File content not in valid Base64 scheme";
-            result = createResult(
-                false,
-                StatusCodes.IMP_INVALID_VALUE,
-                msg);
-            return;
-        } catch (CharacterCodingException cce) {
-            String msg = "File content not in valid " + charset.name();
-            result = createResult(
-                false,
-                StatusCodes.IMP_INVALID_VALUE,
-                msg);
-            return;
-        }
-
-        if (files.size() == 0) {
-            throw new IllegalArgumentException("No valid file given");
+            // TODO: handle this upfront in the service
+            Charset charset;
+            try {
+                charset = Charset.forName(jsonInput.getString("encoding"));
+            } catch (IllegalArgumentException e) {
+                result = createResult(
+                    false,
+                    StatusCodes.IMP_INVALID_VALUE,
+                    "No valid encoding name given");
+                return;
+            }
+
+            //Contains: fileName: fileContent as String
+            Map<String, String> files = new LinkedHashMap<String, String>();
+
+            // TODO: Handle this upfront in the service
+            try {
+                for (Map.Entry<String, JsonValue> e
+                    : filesObject.entrySet()
+                ) {
+                    String base64String =
+                        ((JsonString) e.getValue()).getString();
+                    ByteBuffer decodedBytes = ByteBuffer.wrap(
+                        Base64.getDecoder().decode(base64String));
+                    String decodedContent = new String(
+                        new StringBuffer(charset.newDecoder()
+                            .decode(decodedBytes)));
+                    files.put(e.getKey(), decodedContent);
+                }
+            } catch (IllegalArgumentException iae) {
+                String msg = "File content not in valid Base64 scheme";
+                result = createResult(
+                    false,
+                    StatusCodes.IMP_INVALID_VALUE,
+                    msg);
+                return;
+            } catch (CharacterCodingException cce) {
+                String msg = "File content not in valid " + charset.name();
+                result = createResult(
+                    false,
+                    StatusCodes.IMP_INVALID_VALUE,
+                    msg);
+                return;
+            }
+
+            if (files.size() == 0) {
+                throw new IllegalArgumentException("No valid file given");
+            }
+
+            for (Map.Entry<String, String> file: files.entrySet()) {
+                logLAFFile(mstId, file.getValue(), charset);
+                ImportUnit unit = new ImportUnit(
+                    file.getKey(), () -> new StringReader(file.getValue()));
+                unit.sampleKeys = findSampleKeys(file.getValue());
+                units.add(unit);
+            }
         }
 
+        // Create the tag up front and commit it, so that samples can be
+        // tagged in the transactions committing them
+        Response tagCreation =
+            tagUtil.generateTag("IMP", mst.getNetworkId());
+        if (tagCreation.getSuccess()) {
+            importTag = (Tag) tagCreation.getData();
+        }
+        commitAndBeginTx();
+
         logger.debug(
-            String.format("Starting import of %d files", files.size()));
+            String.format("Starting import of %d files", units.size()));
+        try {
+            importUnits(units);
+        } catch (RuntimeException | Error e) {
+            // Report samples committed before the failure
+            importData = mergeReports(units);
+            throw e;
+        } finally {
+            removeUploadFile();
+        }
 
-        //Import each file
-        String mstId = this.mst.getId();
-        files.forEach((fileName, content) -> {
-            logLAFFile(mstId, content, charset);
-            List<ImportConf> config = new ArrayList<ImportConf>();
-            if (!"".equals(mstId)) {
-                QueryBuilder<ImportConf> builder =
-                    repository.queryBuilder(ImportConf.class);
-                builder.and("measFacilId", mstId);
-                config = repository.filterPlain(builder.getQuery());
+        // Remove the tag if no record has been imported
+        if (importTag != null && !hasImportedIds(units)) {
+            repository.delete(importTag);
+            importTag = null;
+        }
+
+        importData = mergeReports(units);
+        for (ImportUnit unit: units) {
+            if (unit.failure instanceof CharacterCodingException) {
+                result = createResult(
+                    false,
+                    StatusCodes.IMP_INVALID_VALUE,
+                    "File content not in valid " + uploadEncoding.name());
+                return;
+            } else if (unit.failure != null) {
+                throw new RuntimeException(unit.failure);
             }
-            importer.doImport(content, userInfo, mstId, config);
+        }
+        logger.debug("Finished LAF import");
+    }
 
+    /**
+     * Merge reports of the given units in order of files.
+     *
+     * @param units The units
+     * @return A response data object for every file
+     */
+    private Map<String, Map<String, Object>> mergeReports(
+        List<ImportUnit> units
+    ) {
+        Map<String, Map<String, Object>> importResponseData =
+            new HashMap<String, Map<String, Object>>();
+        boolean tagged = importTag != null && hasImportedIds(units);
+        for (ImportUnit unit: units) {
             Map<String, Object> fileResponseData = new HashMap<>();
-            if (!importer.getErrors().isEmpty()) {
-                fileResponseData.put("errors", importer.getErrors());
+            if (!unit.errors.isEmpty()) {
+                fileResponseData.put("errors", unit.errors);
                 this.currentStatus.setErrors(true);
             }
-            if (!importer.getWarnings().isEmpty()) {
-                fileResponseData.put("warnings", importer.getWarnings());
+            if (!unit.warnings.isEmpty()) {
+                fileResponseData.put("warnings", unit.warnings);
                 this.currentStatus.setWarnings(true);
             }
-            if (!importer.getNotifications().isEmpty()) {
-                fileResponseData.put(
-                    "notifications", importer.getNotifications());
+            if (!unit.notifications.isEmpty()) {
+                fileResponseData.put("notifications", unit.notifications);
                 this.currentStatus.setNotifications(true);
             }
-            fileResponseData.put("success", !currentStatus.getErrors());
             fileResponseData.put(
-                "probeIds", ((LafImporter) importer).getImportedIds());
-            importResponseData.put(fileName, fileResponseData);
-            importedProbeids.addAll(((LafImporter) importer).getImportedIds());
+                "success", unit.finished && !currentStatus.getErrors());
+            fileResponseData.put("probeIds", unit.taggedIds());
+            if (tagged) {
+                fileResponseData.put("tag", importTag.getName());
+            }
+            importResponseData.put(unit.fileName, fileResponseData);
+        }
+        return importResponseData;
+    }
+
+    private static boolean hasImportedIds(List<ImportUnit> units) {
+        for (ImportUnit unit: units) {
+            if (!unit.taggedIds().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Import the given units concurrently.
+     *
+     * Units possibly containing the same samples are grouped and the
+     * units of a group are imported sequentially in the given order, so
+     * that samples created by a unit are found by the following units.
+     *
+     * Groups are taken from a queue by workers running on the managed
+     * executor, each unit in its own transaction. The thread running the
+     * job works on the queue, too, committing the transaction of the job
+     * after each unit. Workers not started until the queue is empty are
+     * cancelled, so that the job does not wait for executor threads
+     * occupied otherwise. If a unit fails, no further units are started
+     * and running units are awaited before the failure is propagated.
+     *
+     * @param units The units to import
+     */
+    private void importUnits(List<ImportUnit> units) {
+        List<Set<String>> unitKeys = new ArrayList<>();
+        for (ImportUnit unit: units) {
+            unitKeys.add(unit.sampleKeys);
+        }
+        Queue<List<ImportUnit>> queue = new ConcurrentLinkedQueue<>();
+        for (List<Integer> group: groupBySampleKeys(unitKeys)) {
+            List<ImportUnit> groupUnits = new ArrayList<>();
+            for (int unit: group) {
+                groupUnits.add(units.get(unit));
+            }
+            queue.add(groupUnits);
+        }
+        int parallelism = Math.min(
+            queue.size(), Runtime.getRuntime().availableProcessors());
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            try {
+                workers.add(executor.submit(() -> {
+                    try {
+                        List<ImportUnit> group;
+                        while ((group = queue.poll()) != null) {
+                            for (ImportUnit unit: group) {
+                                runInNewTx(unit);
+                            }
+                        }
+                    } catch (RuntimeException | Error e) {
+                        queue.clear();
+                        throw e;
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Importing with less workers", e);
+                break;
+            }
+        }
+
+        try {
+            List<ImportUnit> group;
+            while ((group = queue.poll()) != null) {
+                for (ImportUnit unit: group) {
+                    unit.run();
+                    commitAndBeginTx();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            queue.clear();
+            Throwable workerFailure = awaitWorkers(workers);
+            if (workerFailure != null) {
+                e.addSuppressed(workerFailure);
+            }
+            throw e;
+        }
+
+        Throwable workerFailure = awaitWorkers(workers);
+        if (workerFailure instanceof RuntimeException) {
+            throw (RuntimeException) workerFailure;
+        } else if (workerFailure instanceof Error) {
+            throw (Error) workerFailure;
+        } else if (workerFailure != null) {
+            throw new IllegalStateException(workerFailure);
+        }
+    }
+
+    /**
+     * Cancel workers not yet started and wait for the others.
+     *
+     * @param workers The workers
+     * @return The first failure of a worker or null
+     */
+    private Throwable awaitWorkers(List<Future<?>> workers) {
+        Throwable failure = null;
+        for (Future<?> worker: workers) {
+            if (worker.cancel(false)) {
+                continue;
+            }
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = e;
+                }
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Find keys identifying samples in LAF data, i.e. values of PROBE_ID
+     * and HAUPTPROBENNUMMER.
+     *
+     * @param laf The LAF data
+     * @return The keys, including their keyword
+     */
+    static Set<String> findSampleKeys(String laf) {
+        Set<String> keys = new HashSet<>();
+        Matcher matcher = SAMPLE_KEY.matcher(laf);
+        while (matcher.find()) {
+            String value = matcher.group(2) != null
+                ? matcher.group(2) : matcher.group(3);
+            keys.add(matcher.group(1).toUpperCase() + " " + value);
+        }
+        return keys;
+    }
+
+    /**
+     * Group units sharing sample keys, keeping the order of units.
+     *
+     * @param unitKeys The sample keys of each unit
+     * @return Groups of indices of units, each in ascending order
+     */
+    static List<List<Integer>> groupBySampleKeys(List<Set<String>> unitKeys) {
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Set<String>> groupKeys = new ArrayList<>();
+        for (int unit = 0; unit < unitKeys.size(); unit++) {
+            List<Integer> group = new ArrayList<>(List.of(unit));
+            Set<String> keys = new HashSet<>(unitKeys.get(unit));
+            for (int i = groups.size() - 1; i >= 0; i--) {
+                if (!Collections.disjoint(groupKeys.get(i), keys)) {
+                    group.addAll(groups.remove(i));
+                    keys.addAll(groupKeys.remove(i));
+                }
+            }
+            Collections.sort(group);
+            groups.add(group);
+            groupKeys.add(keys);
+        }
+        return groups;
+    }
+
+    /**
+     * Source of LAF data.
+     */
+    private interface LafSource {
+        Reader open() throws IOException;
+    }
+
+    /**
+     * A file to be imported with its own importer and report.
+     *
+     * Imported samples are tagged before committing each chunk, so that
+     * samples committed before a failure are tagged and reported, too.
+     */
+    private class ImportUnit implements Runnable {
+        private final String fileName;
+        private final LafSource source;
+
+        private Map<String, List<ReportItem>> errors = Map.of();
+        private Map<String, List<ReportItem>> warnings = Map.of();
+        private Map<String, List<ReportItem>> notifications = Map.of();
+        private List<Integer> importedIds = List.of();
+        private int tagged;
+        private boolean finished;
+        private IOException failure;
+        private Set<String> sampleKeys = Set.of();
+
+        ImportUnit(String fileName, LafSource source) {
+            this.fileName = fileName;
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            logger.debug(
+                String.format("Starting import of file \"%s\"", fileName));
+            LafImporter importer = importers.get();
+            try (Reader reader = source.open()) {
+                // Commit in chunks to keep the persistence context small
+                // and to report progress
+                importer.setProgressListener((done, total, ids) -> {
+                    importedIds = ids;
+                    if (done == 1) {
+                        samplesTotal.addAndGet(total);
+                    }
+                    currentStatus.setProgress(
+                        samplesDone.incrementAndGet(), samplesTotal.get());
+                    if (done % CHUNK_SIZE == 0) {
+                        logger.debug(String.format(
+                            "Imported %d of %d samples from \"%s\"",
+                            done, total, fileName));
+                        tagImportedIds();
+                        commitAndBeginTx();
+                    }
+                });
+                importer.doImport(reader, userInfo, mstId, config);
+                errors = importer.getErrors();
+                warnings = importer.getWarnings();
+                notifications = importer.getNotifications();
+                importedIds = importer.getImportedIds();
+                tagImportedIds();
+                finished = true;
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                // Samples not yet tagged are committed with the
+                // transaction unless it is marked for rollback
+                try {
+                    tagImportedIds();
+                } catch (RuntimeException tagFailure) {
+                    e.addSuppressed(tagFailure);
+                }
+                throw e;
+            } finally {
+                importers.destroy(importer);
+            }
             logger.debug(
                 String.format("Finished import of file \"%s\"", fileName));
-        });
-
-        // If import created at least a new record
-        if (importedProbeids.size() > 0) {
-            //Generate a tag for the imported probe records
-            Response tagCreation =
-                tagUtil.generateTag("IMP", mst.getNetworkId());
-            if (!tagCreation.getSuccess()) {
-                // TODO Tag creation failed -> import success?
-                importData = importResponseData;
-                return;
+        }
+
+        /**
+         * Tag samples imported since the last call.
+         */
+        private void tagImportedIds() {
+            if (importTag != null && importedIds.size() > tagged) {
+                tagUtil.setTagsByProbeIds(
+                    new ArrayList<>(
+                        importedIds.subList(tagged, importedIds.size())),
+                    importTag.getId());
             }
-            Tag newTag = (Tag) tagCreation.getData();
-            tagUtil.setTagsByProbeIds(
-                importedProbeids, newTag.getId());
+            tagged = importedIds.size();
+        }
 
-            //Put new tag in import response
-            importResponseData.forEach((file, responseData) -> {
-                responseData.put("tag", newTag.getName());
-            });
+        /**
+         * @return IDs of imported samples, which have been tagged
+         */
+        private List<Integer> taggedIds() {
+            return List.copyOf(importedIds.subList(0, tagged));
+        }
+    }
+
+    /**
+     * Store the content of an uploaded file in a temporary file
+     * to be imported by this job.
+     *
+     * @param fileName Name of the file used in the import result
+     * @param content The file content
+     * @param encoding The encoding of the file content
+     * @throws IOException if the temporary file cannot be written
+     */
+    public void setUpload(
+        String fileName,
+        InputStream content,
+        Charset encoding
+    ) throws IOException {
+        this.uploadFileName = fileName;
+        this.uploadEncoding = encoding;
+        this.uploadFilePath =
+            File.createTempFile("import-", ".laf").toPath();
+        logger.debug(String.format(
+                "Writing upload to file %s", uploadFilePath));
+        try (content) {
+            Files.copy(
+                content, uploadFilePath,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ioe) {
+            removeUploadFile();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Remove the uploaded file if present.
+     */
+    private void removeUploadFile() {
+        if (this.uploadFilePath != null) {
+            try {
+                Files.deleteIfExists(this.uploadFilePath);
+            } catch (IOException ioe) {
+                logger.error(String.format(
+                        "Cannot delete upload file. IOException: %s",
+                        ioe.getMessage()));
+            }
+            this.uploadFilePath = null;
         }
-        importData = importResponseData;
-        logger.debug("Finished LAF import");
     }
 
     public void setJsonInput(JsonObject jsonInput) {
@@ -7,10 +7,10 @@
  */
 package de.intevation.lada.importer.laf;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,9 +19,15 @@ import java.util.Map.Entry;
 
 import javax.inject.Inject;
 
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointBuffer;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.jboss.logging.Logger;
@@ -36,6 +42,8 @@ import de.intevation.lada.util.data.StatusCodes;
  */
 public class LafImporter {
 
+    private static final int BUFFER_SIZE = 8192;
+
     @Inject
     private Logger logger;
 
@@ -54,6 +62,7 @@ public class LafImporter {
      * Start the import of the LAF data.
      * @param lafString The laf formated data as string
      * @param userInfo The current user info
+     * @param measFacilId ID of the default measurement facility
      * @param config The import config to use
      */
     public void doImport(
@@ -62,93 +71,196 @@ public class LafImporter {
         String measFacilId,
         List<ImportConf> config
     ) {
-        // Append newline to avoid parser errors.
-        // Every line can be the last line, so it is easier to append a
-        // newline here than to extend the grammar with EOF for every line.
-        lafString += "\r\n";
+        try {
+            doImport(
+                new StringReader(lafString), userInfo, measFacilId, config);
+        } catch (IOException e) {
+            logger.debug("Exception while reading LAF input", e);
+        }
+    }
+
+    /**
+     * Start the import of the LAF data read from the given reader.
+     *
+     * The reader is read completely, but not closed.
+     *
+     * @param lafReader Reader providing the laf formated data
+     * @param userInfo The current user info
+     * @param measFacilId ID of the default measurement facility
+     * @param config The import config to use
+     * @throws IOException if reading the data fails
+     */
+    public void doImport(
+        Reader lafReader,
+        UserInfo userInfo,
+        String measFacilId,
+        List<ImportConf> config
+    ) throws IOException {
         errors = new HashMap<String, List<ReportItem>>();
         warnings = new HashMap<String, List<ReportItem>>();
         notifications = new HashMap<String, List<ReportItem>>();
 
         importProbeIds = new ArrayList<Integer>();
 
-        try {
-            CharStream ais = CharStreams.fromStream(new ByteArrayInputStream(
-                lafString.getBytes(StandardCharsets.UTF_8)),
-                StandardCharsets.UTF_8);
-            LafLexer lexer = new LafLexer(ais);
-            CommonTokenStream cts = new CommonTokenStream(lexer);
-            LafParser parser = new LafParser(cts);
-            LafErrorListener errorListener = LafErrorListener.INSTANCE;
-            errorListener.reset();
-            parser.addErrorListener(errorListener);
-            ParseTree tree = parser.probendatei();
-            LafObjectListener listener = new LafObjectListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, tree);
-            List<ReportItem> parserWarnings = listener.getParserWarnings();
-            if (!listener.hasUebertragungsformat()) {
-                ReportItem warn = new ReportItem();
-                warn.setKey("UEBERTRAGUNGSFORMAT");
-                warn.setValue("");
-                warn.setCode(StatusCodes.IMP_MISSING_VALUE);
-                parserWarnings.add(warn);
-            }
-            if (!listener.hasVersion()) {
-                ReportItem warn = new ReportItem();
-                warn.setKey("VERSION");
-                warn.setValue("");
-                warn.setCode(StatusCodes.IMP_MISSING_VALUE);
-                parserWarnings.add(warn);
-            }
-            if (!errorListener.getErrors().isEmpty()) {
-                errors.put("Parser", errorListener.getErrors());
-                return;
-            }
-            errors.putAll(listener.getErrors());
-            warnings.putAll(listener.getWarnings());
-            if (!parserWarnings.isEmpty()) {
-                warnings.put("Parser", parserWarnings);
-            }
-            mapper.setUserInfo(userInfo);
-            mapper.setConfig(config);
-            mapper.setMeasFacilId(measFacilId);
-            mapper.mapObjects(listener.getData());
-            importProbeIds = mapper.getImportedProbeIds();
-            for (Entry<String, List<ReportItem>> entry
-                : mapper.getErrors().entrySet()
-            ) {
-                if (errors.containsKey(entry.getKey())) {
-                    errors.get(entry.getKey()).addAll(entry.getValue());
-                } else {
-                    errors.put(entry.getKey(), entry.getValue());
-                }
+        LafErrorListener errorListener = new LafErrorListener();
+        LafObjectListener listener =
+            parse(readLaf(lafReader), errorListener);
+        List<ReportItem> parserWarnings = listener.getParserWarnings();
+        if (!listener.hasUebertragungsformat()) {
+            ReportItem warn = new ReportItem();
+            warn.setKey("UEBERTRAGUNGSFORMAT");
+            warn.setValue("");
+            warn.setCode(StatusCodes.IMP_MISSING_VALUE);
+            parserWarnings.add(warn);
+        }
+        if (!listener.hasVersion()) {
+            ReportItem warn = new ReportItem();
+            warn.setKey("VERSION");
+            warn.setValue("");
+            warn.setCode(StatusCodes.IMP_MISSING_VALUE);
+            parserWarnings.add(warn);
+        }
+        if (!errorListener.getErrors().isEmpty()) {
+            errors.put("Parser", errorListener.getErrors());
+            return;
+        }
+        errors.putAll(listener.getErrors());
+        warnings.putAll(listener.getWarnings());
+        if (!parserWarnings.isEmpty()) {
+            warnings.put("Parser", parserWarnings);
+        }
+        mapper.setUserInfo(userInfo);
+        mapper.setConfig(config);
+        mapper.setMeasFacilId(measFacilId);
+        mapper.mapObjects(listener.getData());
+        importProbeIds = mapper.getImportedProbeIds();
+        for (Entry<String, List<ReportItem>> entry
+            : mapper.getErrors().entrySet()
+        ) {
+            if (errors.containsKey(entry.getKey())) {
+                errors.get(entry.getKey()).addAll(entry.getValue());
+            } else {
+                errors.put(entry.getKey(), entry.getValue());
             }
+        }
 
-            for (Entry<String, List<ReportItem>> entry
-                : mapper.getWarnings().entrySet()
-            ) {
-                if (warnings.containsKey(entry.getKey())) {
-                    warnings.get(entry.getKey()).addAll(entry.getValue());
-                } else {
-                    warnings.put(entry.getKey(), entry.getValue());
-                }
+        for (Entry<String, List<ReportItem>> entry
+            : mapper.getWarnings().entrySet()
+        ) {
+            if (warnings.containsKey(entry.getKey())) {
+                warnings.get(entry.getKey()).addAll(entry.getValue());
+            } else {
+                warnings.put(entry.getKey(), entry.getValue());
             }
+        }
 
-            for (Entry<String, List<ReportItem>> entry
-                : mapper.getNotifications().entrySet()
-            ) {
-                if (notifications.containsKey(entry.getKey())) {
-                    notifications.get(entry.getKey()).addAll(entry.getValue());
-                } else {
-                    notifications.put(entry.getKey(), entry.getValue());
-                }
+        for (Entry<String, List<ReportItem>> entry
+            : mapper.getNotifications().entrySet()
+        ) {
+            if (notifications.containsKey(entry.getKey())) {
+                notifications.get(entry.getKey()).addAll(entry.getValue());
+            } else {
+                notifications.put(entry.getKey(), entry.getValue());
             }
-        } catch (IOException e) {
-            logger.debug("Exception while reading LAF input", e);
         }
     }
 
+    /**
+     * Parse LAF data.
+     *
+     * All state of the parse is local to the call, so that multiple LAF
+     * data can be parsed concurrently.
+     *
+     * The data are parsed with SLL prediction first, which is faster and
+     * sufficient for the LAF grammar in most cases. Only if this fails,
+     * the data are parsed again with full LL prediction, reporting
+     * syntax errors to the given listener.
+     *
+     * @param lafData The LAF data
+     * @param errorListener Listener collecting the errors of this parse
+     * @return Listener holding the parsed data
+     */
+    static LafObjectListener parse(
+        CharStream lafData,
+        LafErrorListener errorListener
+    ) {
+        CommonTokenStream cts = new CommonTokenStream(new LafLexer(lafData));
+        ParseTree tree;
+        try {
+            tree = parseTree(cts, PredictionMode.SLL, null);
+        } catch (ParseCancellationException e) {
+            // Syntax error or SLL not sufficient: try again
+            tree = parseTree(cts, PredictionMode.LL, errorListener);
+        }
+        LafObjectListener listener = new LafObjectListener();
+        ParseTreeWalker walker = new ParseTreeWalker();
+        walker.walk(listener, tree);
+        return listener;
+    }
+
+    /**
+     * Parse LAF tokens with the given prediction mode.
+     *
+     * @param tokens The tokens, parsed from the beginning
+     * @param mode The prediction mode
+     * @param errorListener Listener collecting syntax errors. If null,
+     * the parse is cancelled on the first syntax error.
+     * @return The parse tree
+     * @throws ParseCancellationException if errorListener is null and
+     * the tokens cannot be parsed
+     */
+    static ParseTree parseTree(
+        TokenStream tokens,
+        PredictionMode mode,
+        LafErrorListener errorListener
+    ) throws ParseCancellationException {
+        tokens.seek(0);
+        LafParser parser = new LafParser(tokens);
+        parser.getInterpreter().setPredictionMode(mode);
+        parser.removeErrorListeners();
+        if (errorListener == null) {
+            parser.setErrorHandler(new BailErrorStrategy());
+        } else {
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.addErrorListener(errorListener);
+        }
+        return parser.probendatei();
+    }
+
+    /**
+     * Read LAF data into a CharStream.
+     *
+     * The data are decoded into a code point buffer only once, without
+     * intermediate String or byte array copies.
+     *
+     * @param reader Reader providing the data
+     * @return The CharStream
+     * @throws IOException if reading the data fails
+     */
+    static CharStream readLaf(Reader reader) throws IOException {
+        CodePointBuffer.Builder builder = CodePointBuffer.builder(BUFFER_SIZE);
+        CharBuffer buffer = CharBuffer.allocate(BUFFER_SIZE);
+        while (reader.read(buffer) != -1) {
+            buffer.flip();
+            builder.append(buffer);
+            buffer.compact();
+        }
+        // Append newline to avoid parser errors.
+        // Every line can be the last line, so it is easier to append a
+        // newline here than to extend the grammar with EOF for every line.
+        builder.append(CharBuffer.wrap("\r\n"));
+        return CodePointCharStream.fromBuffer(builder.build());
+    }
+
+    /**
+     * @param listener Listener notified after each sample has been imported
+     */
+    public void setProgressListener(
+        LafObjectMapper.ProgressListener listener
+    ) {
+        mapper.setProgressListener(listener);
+    }
+
     public Map<String, List<ReportItem>> getErrors() {
         return this.errors;
     }
@@ -22,7 +22,6 @@ import java.util.Map.Entry;
 
 import javax.inject.Inject;
 import javax.management.modelmbean.InvalidTargetObjectTypeException;
-import javax.persistence.NoResultException;
 
 import org.jboss.logging.Logger;
 
@@ -30,7 +29,9 @@ import de.intevation.lada.factory.OrtFactory;
 import de.intevation.lada.factory.ProbeFactory;
 import de.intevation.lada.importer.Identified;
 import de.intevation.lada.importer.Identifier;
+import de.intevation.lada.importer.IdentifierIndex;
 import de.intevation.lada.importer.IdentifierConfig;
+import de.intevation.lada.importer.MasterDataLookup;
 import de.intevation.lada.importer.ObjectMerger;
 import de.intevation.lada.importer.ReportItem;
 import de.intevation.lada.model.lada.CommMeasm;
@@ -127,6 +128,9 @@ public class LafObjectMapper {
 
     @Inject OrtFactory ortFactory;
 
+    @Inject
+    private MasterDataLookup lookup;
+
     @Inject
     private MesswertNormalizer messwertNormalizer;
 
@@ -137,6 +141,7 @@ public class LafObjectMapper {
     private List<ReportItem> currentWarnings;
     private List<ReportItem> currentNotifications;
     private List<Integer> importProbeIds;
+    private IdentifierIndex identifierIndex;
 
     private int currentZeitbasis;
 
@@ -147,6 +152,20 @@ public class LafObjectMapper {
     private List<ImportConf> config;
     private ImportConfigMapper configMapper;
 
+    private ProgressListener progressListener;
+
+    /**
+     * Listener notified after each sample has been mapped.
+     */
+    public interface ProgressListener {
+        /**
+         * @param done Number of samples mapped so far
+         * @param total Total number of samples to be mapped
+         * @param importedIds IDs of samples imported so far
+         */
+        void samplesDone(int done, int total, List<Integer> importedIds);
+    }
+
     /**
      * Map the raw data to database objects.
      * @param data the raw data from laf parser
@@ -156,11 +175,53 @@ public class LafObjectMapper {
         warnings = new HashMap<>();
         notifications = new HashMap<>();
         importProbeIds = new ArrayList<>();
+        factory.setLookup(lookup);
+        ortFactory.setLookup(lookup);
+        identifierIndex = createIndex(data);
+        probeIdentifier.setIndex(identifierIndex);
+        messungIdentifier.setIndex(identifierIndex);
+        int total = data.getProben().size();
+        int done = 0;
         for (LafRawData.Sample sample: data.getProben()) {
             create(sample);
+            done++;
+            if (progressListener != null) {
+                progressListener.samplesDone(
+                    done, total, importProbeIds);
+            }
         }
     }
 
+    /**
+     * Load keys of existing samples matching the raw data with set-based
+     * queries.
+     *
+     * Keys are taken from the raw data before applying the import
+     * configuration. Samples with keys changed by the configuration are
+     * identified by querying the database.
+     *
+     * @param data The raw data
+     * @return Index of existing samples and their measurements
+     */
+    private IdentifierIndex createIndex(LafRawData data) {
+        List<String> extIds = new ArrayList<>();
+        List<List<String>> mainSampleIds = new ArrayList<>();
+        for (LafRawData.Sample sample: data.getProben()) {
+            Map<String, String> attributes = sample.getAttributes();
+            String extId = attributes.get("PROBE_ID");
+            String mainSampleId = attributes.get("HAUPTPROBENNUMMER");
+            String mstId = attributes.getOrDefault("MESSSTELLE", measFacilId);
+            if (extId != null) {
+                extIds.add(extId);
+            } else if (mainSampleId != null && mstId != null) {
+                mainSampleIds.add(List.of(mstId, mainSampleId));
+            }
+        }
+        IdentifierIndex index = new IdentifierIndex(repository);
+        index.addSamples(extIds, mainSampleIds);
+        return index;
+    }
+
     private void create(LafRawData.Sample object) {
         currentWarnings = new ArrayList<>();
         currentErrors = new ArrayList<>();
@@ -184,7 +245,7 @@ public class LafObjectMapper {
             }
             probe.setMeasFacilId(measFacilId);
         } else {
-            MeasFacil mst = repository.getByIdPlain(
+            MeasFacil mst = lookup.getById(
                 MeasFacil.class, probe.getMeasFacilId());
             if (mst == null) {
                 currentErrors.add(
@@ -201,12 +262,10 @@ public class LafObjectMapper {
 
         if (object.getAttributes().containsKey("ZEITBASIS")) {
             String attribute = object.getAttributes().get("ZEITBASIS");
-            QueryBuilder<Tz> builder = repository.queryBuilder(Tz.class)
-                .and("name", attribute);
-            try {
-                currentZeitbasis = repository.getSinglePlain(builder.getQuery())
-                    .getId();
-            } catch (NoResultException e) {
+            List<Tz> zeitbasis = lookup.filter(Tz.class, "name", attribute);
+            if (zeitbasis.size() == 1) {
+                currentZeitbasis = zeitbasis.get(0).getId();
+            } else {
                 currentWarnings.add(
                     new ReportItem(
                         "ZEITBASIS",
@@ -216,7 +275,7 @@ public class LafObjectMapper {
         } else if (object.getAttributes().containsKey("ZEITBASIS_S")) {
             currentZeitbasis =
                 Integer.valueOf(object.getAttributes().get("ZEITBASIS_S"));
-            Tz zeitbasis = repository.getByIdPlain(
+            Tz zeitbasis = lookup.getById(
                 Tz.class,
                 currentZeitbasis
             );
@@ -786,6 +845,8 @@ public class LafObjectMapper {
             throw new IllegalArgumentException(
                 "Identified with unexpected enum constant");
         }
+        // Keys might have been changed or added
+        identifierIndex.putMeasm(newMessung);
 
         // Add commMeasms
         List<CommMeasm> kommentare = new ArrayList<CommMeasm>();
@@ -1005,10 +1066,8 @@ public class LafObjectMapper {
             isId = true;
         }
 
-        QueryBuilder<SampleSpecif> builder = repository
-            .queryBuilder(SampleSpecif.class)
-            .and(isId ? "id" : "extId", attribute);
-        List<SampleSpecif> zusatz = repository.filterPlain(builder.getQuery());
+        List<SampleSpecif> zusatz = lookup.filter(
+            SampleSpecif.class, isId ? "id" : "extId", attribute);
         if (zusatz == null || zusatz.isEmpty()) {
             currentWarnings.add(new ReportItem(
                     isId ? "PROBENZUSATZBESCHREIBUNG" : "PZB_S",
@@ -1032,7 +1091,7 @@ public class LafObjectMapper {
         messwert.setMeasmId(messungsId);
 
         if (attributes.containsKey("MESSGROESSE_ID")) {
-            Measd messgreosse = repository.getByIdPlain(
+            Measd messgreosse = lookup.getById(
                 Measd.class,
                 Integer.valueOf(attributes.get("MESSGROESSE_ID"))
             );
@@ -1060,9 +1119,8 @@ public class LafObjectMapper {
                         .toLowerCase();
             }
 
-            QueryBuilder<Measd> builder = repository.queryBuilder(Measd.class)
-                .and("name", messgroesseString);
-            List<Measd> groesse = repository.filterPlain(builder.getQuery());
+            List<Measd> groesse =
+                lookup.filter(Measd.class, "name", messgroesseString);
             if (groesse == null || groesse.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1074,7 +1132,7 @@ public class LafObjectMapper {
             messwert.setMeasdId(groesse.get(0).getId());
         }
         if (attributes.containsKey("MESSEINHEIT_ID")) {
-            MeasUnit messEinheit = repository.getByIdPlain(
+            MeasUnit messEinheit = lookup.getById(
                 MeasUnit.class,
                 Integer.valueOf(attributes.get("MESSEINHEIT_ID"))
             );
@@ -1090,10 +1148,8 @@ public class LafObjectMapper {
                 Integer.valueOf(attributes.get("MESSEINHEIT_ID")));
         } else if (attributes.containsKey("MESSEINHEIT")) {
             String attribute = attributes.get("MESSEINHEIT");
-            QueryBuilder<MeasUnit> builder = repository
-                .queryBuilder(MeasUnit.class)
-                .and("unitSymbol", attribute);
-            List<MeasUnit> einheit = repository.filterPlain(builder.getQuery());
+            List<MeasUnit> einheit =
+                lookup.filter(MeasUnit.class, "unitSymbol", attribute);
             if (einheit == null || einheit.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1282,10 +1338,8 @@ public class LafObjectMapper {
     ) {
         // validation check of new status entries
         int newKombi = 0;
-        QueryBuilder<StatusMp> builder = repository.queryBuilder(StatusMp.class)
-            .and("statusVal", statusWert)
-            .and("statusLev", statusStufe);
-        List<StatusMp> kombi = repository.filterPlain(builder.getQuery());
+        List<StatusMp> kombi = lookup.filter(StatusMp.class,
+            "statusVal", statusWert, "statusLev", statusStufe);
         if (kombi != null && !kombi.isEmpty()) {
             newKombi = kombi.get(0).getId();
         } else {
@@ -1299,7 +1353,7 @@ public class LafObjectMapper {
         // get current status kombi
         StatusProt currentStatus = repository.getByIdPlain(
             StatusProt.class, messung.getStatus());
-        StatusMp currentKombi = repository.getByIdPlain(
+        StatusMp currentKombi = lookup.getById(
             StatusMp.class, currentStatus.getStatusMpId());
         // check if erreichbar
         QueryBuilder<StatusAccessMpView> errFilter = repository
@@ -1394,7 +1448,7 @@ public class LafObjectMapper {
 
         // check auth
         MeasFacil messStelle =
-            repository.getByIdPlain(MeasFacil.class, mstId);
+            lookup.getById(MeasFacil.class, mstId);
         if ((statusStufe == 1
                 && userInfo.getFunktionenForMst(mstId).contains(1))
             || (statusStufe == 2
@@ -1459,11 +1513,9 @@ public class LafObjectMapper {
                 probe.setNuclFacilGrId(messpunkte.get(0).getNuclFacilGrId());
                 repository.update(probe);
             } else if (uo.get("U_ORTS_ZUSATZCODE").length() == 4) {
-                QueryBuilder<NuclFacilGr> builderKta = repository
-                    .queryBuilder(NuclFacilGr.class)
-                    .and("extId", uo.get("U_ORTS_ZUSATZCODE"));
-                List<NuclFacilGr> ktaGrp =
-                    repository.filterPlain(builderKta.getQuery());
+                List<NuclFacilGr> ktaGrp = lookup.filter(
+                    NuclFacilGr.class,
+                    "extId", uo.get("U_ORTS_ZUSATZCODE"));
                 if (!ktaGrp.isEmpty()) {
                     Site o = null;
                     // Check for Koordinates U_Ort (primary):
@@ -1574,7 +1626,7 @@ public class LafObjectMapper {
         ort.setSiteId(o.getId());
         ort.setPoiId(o.getPoiId());
         if (rawOrt.containsKey(type + "_ORTS_ZUSATZCODE")) {
-            Poi zusatz = repository.getByIdPlain(
+            Poi zusatz = lookup.getById(
                 Poi.class,
                 rawOrt.get(type + "_ORTS_ZUSATZCODE")
             );
@@ -1614,7 +1666,7 @@ public class LafObjectMapper {
             if (attributes.get(type + "KOORDINATEN_ART_S") != null) {
                 o.setSpatRefSysId(Integer.valueOf(
                         attributes.get(type + "KOORDINATEN_ART_S")));
-                SpatRefSys koordinatenArt = repository.getByIdPlain(
+                SpatRefSys koordinatenArt = lookup.getById(
                     SpatRefSys.class, o.getSpatRefSysId());
                 if (koordinatenArt == null) {
                     currentWarnings.add(
@@ -1625,11 +1677,9 @@ public class LafObjectMapper {
                     o.setSpatRefSysId(null);
                 }
             } else {
-                QueryBuilder<SpatRefSys> kdaBuilder = repository
-                    .queryBuilder(SpatRefSys.class)
-                    .and("name", attributes.get(type + "KOORDINATEN_ART"));
-                List<SpatRefSys> arten =
-                    repository.filterPlain(kdaBuilder.getQuery());
+                List<SpatRefSys> arten = lookup.filter(
+                    SpatRefSys.class,
+                    "name", attributes.get(type + "KOORDINATEN_ART"));
                 if (arten == null || arten.isEmpty()) {
                     currentWarnings.add(
                         new ReportItem(
@@ -1647,11 +1697,9 @@ public class LafObjectMapper {
         // If laf contains gemeinde attributes, find a ort with matching gemId
         // or create one.
         if (attributes.get(type + "GEMEINDENAME") != null) {
-            QueryBuilder<AdminUnit> builder = repository
-                .queryBuilder(AdminUnit.class)
-                .and("name", attributes.get(type + "GEMEINDENAME"));
-            List<AdminUnit> ves =
-                repository.filterPlain(builder.getQuery());
+            List<AdminUnit> ves = lookup.filter(
+                AdminUnit.class,
+                "name", attributes.get(type + "GEMEINDENAME"));
             if (ves == null || ves.size() == 0) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1664,8 +1712,7 @@ public class LafObjectMapper {
         } else if (attributes.get(type + "GEMEINDESCHLUESSEL") != null) {
             o.setAdminUnitId(attributes.get(type + "GEMEINDESCHLUESSEL"));
             AdminUnit v =
-                repository.getByIdPlain(
-                    AdminUnit.class, o.getAdminUnitId());
+                lookup.getById(AdminUnit.class, o.getAdminUnitId());
             if (v == null) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1692,11 +1739,8 @@ public class LafObjectMapper {
         }
 
         if (staatFilter.length() > 0) {
-            QueryBuilder<State> builderStaat = repository
-                .queryBuilder(State.class)
-                .and(staatFilter, hLand);
             List<State> staat =
-                repository.filterPlain(builderStaat.getQuery());
+                lookup.filter(State.class, staatFilter, hLand);
             if (staat == null || staat.size() == 0) {
                 currentWarnings.add(
                     new ReportItem(key, hLand, StatusCodes.IMP_INVALID_VALUE));
@@ -1715,7 +1759,7 @@ public class LafObjectMapper {
             return null;
         }
 
-        MeasFacil mst = repository.getByIdPlain(
+        MeasFacil mst = lookup.getById(
             MeasFacil.class, probe.getMeasFacilId());
         o.setNetworkId(mst.getNetworkId());
         o = ortFactory.completeOrt(o);
@@ -1746,8 +1790,9 @@ public class LafObjectMapper {
         if (o.getId() != null) {
             return o;
         }
-        repository.create(o);
-        return o;
+        // Orte might be created concurrently by other imports
+        return repository.getByIdPlain(
+            Site.class, ortFactory.persistOrt(o));
     }
 
     private Timestamp getDate(String date) {
@@ -1838,7 +1883,7 @@ public class LafObjectMapper {
         if ("DATENBASIS_S".equals(key)
             && probe.getRegulationId() == null
         ) {
-            Regulation datenbasis = repository.getByIdPlain(
+            Regulation datenbasis = lookup.getById(
                 Regulation.class,
                 Integer.valueOf(value.toString())
             );
@@ -1861,11 +1906,8 @@ public class LafObjectMapper {
         if ("DATENBASIS".equals(key)
             && probe.getRegulationId() == null
         ) {
-            QueryBuilder<Regulation> builder = repository
-                .queryBuilder(Regulation.class)
-                .and("name", value);
             List<Regulation> datenbasis =
-                repository.filterPlain(builder.getQuery());
+                lookup.filter(Regulation.class, "name", value);
             if (datenbasis == null || datenbasis.isEmpty()) {
                 currentErrors.add(
                     new ReportItem(key, value, StatusCodes.IMP_INVALID_VALUE));
@@ -1895,7 +1937,7 @@ public class LafObjectMapper {
         }
 
         if ("MESSLABOR".equals(key)) {
-            MeasFacil mst = repository.getByIdPlain(
+            MeasFacil mst = lookup.getById(
                 MeasFacil.class, value.toString());
             if (mst == null) {
                 currentWarnings.add(
@@ -1909,11 +1951,8 @@ public class LafObjectMapper {
         if ("MESSPROGRAMM_S".equals(key)
             && probe.getOprModeId() == null
         ) {
-            QueryBuilder<MpgTransf> builder = repository
-                .queryBuilder(MpgTransf.class)
-                .and("extId", value);
-            List<MpgTransf> transfer = repository.filterPlain(
-                    builder.getQuery());
+            List<MpgTransf> transfer =
+                lookup.filter(MpgTransf.class, "extId", value);
             if (transfer == null || transfer.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1926,11 +1965,8 @@ public class LafObjectMapper {
             }
         }
         if ("MESSPROGRAMM_C".equals(key)) {
-            QueryBuilder<MpgTransf> builder = repository
-                .queryBuilder(MpgTransf.class)
-                .and("name", value);
             List<MpgTransf> transfer =
-                repository.filterPlain(builder.getQuery());
+                lookup.filter(MpgTransf.class, "name", value);
             if (transfer == null || transfer.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1944,13 +1980,11 @@ public class LafObjectMapper {
         }
 
         if ("ERZEUGER".equals(key)) {
-            QueryBuilder<DatasetCreator> builder = repository
-                .queryBuilder(DatasetCreator.class)
-                .and("networkId", netzbetreiberId)
-                .and("measFacilId", probe.getMeasFacilId())
-                .and("extId", value);
-            List<DatasetCreator> datensatzErzeuger =
-                repository.filterPlain(builder.getQuery());
+            List<DatasetCreator> datensatzErzeuger = lookup.filter(
+                DatasetCreator.class,
+                "networkId", netzbetreiberId,
+                "measFacilId", probe.getMeasFacilId(),
+                "extId", value);
             if (datensatzErzeuger == null || datensatzErzeuger.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1961,12 +1995,10 @@ public class LafObjectMapper {
         }
 
         if ("MESSPROGRAMM_LAND".equals(key)) {
-            QueryBuilder<MpgCateg> builder = repository
-                .queryBuilder(MpgCateg.class)
-                .and("networkId", netzbetreiberId)
-                .and("extId", value);
-            List<MpgCateg> kategorie =
-                repository.filterPlain(builder.getQuery());
+            List<MpgCateg> kategorie = lookup.filter(
+                MpgCateg.class,
+                "networkId", netzbetreiberId,
+                "extId", value);
             if (kategorie == null || kategorie.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -1977,11 +2009,10 @@ public class LafObjectMapper {
         }
 
         if ("PROBENAHMEINSTITUTION".equals(key)) {
-            QueryBuilder<Sampler> builder = repository
-                .queryBuilder(Sampler.class)
-                .and("networkId", netzbetreiberId)
-                .and("extId", value);
-            List<Sampler> prn = repository.filterPlain(builder.getQuery());
+            List<Sampler> prn = lookup.filter(
+                Sampler.class,
+                "networkId", netzbetreiberId,
+                "extId", value);
             if (prn == null || prn.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -2010,7 +2041,7 @@ public class LafObjectMapper {
         if ("UMWELTBEREICH_S".equals(key)
             && probe.getEnvMediumId() == null
         ) {
-            EnvMedium umw = repository.getByIdPlain(
+            EnvMedium umw = lookup.getById(
                 EnvMedium.class, value.toString());
             if (umw == null) {
                 currentWarnings.add(
@@ -2033,10 +2064,9 @@ public class LafObjectMapper {
             int length = value.toString().length() > 80
                 ? 80
                 : value.toString().length();
-            QueryBuilder<EnvMedium> builder = repository
-                .queryBuilder(EnvMedium.class)
-                .and("name", value.toString().substring(0, length));
-            List<EnvMedium> umwelt = repository.filterPlain(builder.getQuery());
+            List<EnvMedium> umwelt = lookup.filter(
+                EnvMedium.class,
+                "name", value.toString().substring(0, length));
             if (umwelt == null || umwelt.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -2082,11 +2112,8 @@ public class LafObjectMapper {
 
         if ("REI_PROGRAMMPUNKTGRUPPE".equals(key)
             || "REI_PROGRAMMPUNKT".equals(key)) {
-            QueryBuilder<ReiAgGr> builder = repository
-                .queryBuilder(ReiAgGr.class)
-                .and("name", value.toString());
             List<ReiAgGr> list =
-                repository.filterPlain(builder.getQuery());
+                lookup.filter(ReiAgGr.class, "name", value.toString());
             if (!list.isEmpty()) {
                 probe.setReiAgGrId(list.get(0).getId());
             } else {
@@ -2101,11 +2128,8 @@ public class LafObjectMapper {
         }
 
         if ("PROBENART".equals(key) && value != null) {
-            QueryBuilder<SampleMeth> builder = repository
-                .queryBuilder(SampleMeth.class)
-                .and("extId", value);
             List<SampleMeth> probenart =
-                repository.filterPlain(builder.getQuery());
+                lookup.filter(SampleMeth.class, "extId", value);
             if (probenart == null || probenart.isEmpty()) {
                 currentWarnings.add(
                     new ReportItem(
@@ -2140,7 +2164,7 @@ public class LafObjectMapper {
             Integer i = Integer.valueOf(value.toString());
             messung.setMeasPd(i);
         } else if ("MESSMETHODE_S".equals(key)) {
-            Mmt mmt = repository.getByIdPlain(
+            Mmt mmt = lookup.getById(
                 Mmt.class, value.toString());
             if (mmt == null) {
                 currentWarnings.add(
@@ -2150,9 +2174,8 @@ public class LafObjectMapper {
                 messung.setMmtId(value.toString());
             }
         } else if ("MESSMETHODE_C".equals(key)) {
-            QueryBuilder<Mmt> builder = repository.queryBuilder(Mmt.class)
-                .and("name", value.toString());
-            List<Mmt> mm = repository.filterPlain(builder.getQuery());
+            List<Mmt> mm =
+                lookup.filter(Mmt.class, "name", value.toString());
             if (mm == null || mm.isEmpty()) {
                 ReportItem warn = new ReportItem();
                 warn.setCode(StatusCodes.IMP_MISSING_VALUE);
@@ -2216,6 +2239,13 @@ public class LafObjectMapper {
         this.configMapper = new ImportConfigMapper(config);
     }
 
+    /**
+     * @param progressListener Listener notified after each sample
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
     /**
      * @param measFacilId ID of the default measurement facility
      */
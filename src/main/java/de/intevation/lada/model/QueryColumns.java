@@ -8,6 +8,7 @@
 package de.intevation.lada.model;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.Basic;
 import javax.persistence.FetchType;
@@ -23,6 +24,8 @@ public class QueryColumns {
     @Basic(fetch = FetchType.EAGER)
     private List<GridColConf> columns;
 
+    private Map<String, Object> after;
+
     public QueryColumns() { }
 
     public void setColumns(List<GridColConf> columns) {
@@ -32,4 +35,16 @@ public class QueryColumns {
     public List<GridColConf> getColumns() {
         return this.columns;
     }
+
+    /**
+     * @return The sort column values of the entry after which
+     * the requested entries start (keyset pagination) or null
+     */
+    public Map<String, Object> getAfter() {
+        return this.after;
+    }
+
+    public void setAfter(Map<String, Object> after) {
+        this.after = after;
+    }
 }
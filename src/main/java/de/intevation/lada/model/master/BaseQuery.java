@@ -10,10 +10,14 @@ package de.intevation.lada.model.master;
 import java.io.Serializable;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 
+import de.intevation.lada.util.data.MasterDataListener;
+
 @Entity
+@EntityListeners(MasterDataListener.class)
 @Table(schema = SchemaName.NAME)
 public class BaseQuery implements Serializable {
 
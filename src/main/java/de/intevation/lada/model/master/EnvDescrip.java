@@ -12,12 +12,16 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import static javax.persistence.TemporalType.TIMESTAMP;
 
+import de.intevation.lada.util.data.MasterDataListener;
+
 @Entity
+@EntityListeners(MasterDataListener.class)
 @Table(schema = SchemaName.NAME)
 public class EnvDescrip implements Serializable {
     private static final long serialVersionUID = 1L;
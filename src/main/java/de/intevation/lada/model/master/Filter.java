@@ -10,13 +10,16 @@ package de.intevation.lada.model.master;
 import java.io.Serializable;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
+import de.intevation.lada.util.data.MasterDataListener;
 
 @Entity
+@EntityListeners(MasterDataListener.class)
 @NamedQuery(name = "Filter.findAll", query = "SELECT f FROM Filter f")
 @Table(schema = SchemaName.NAME)
 public class Filter implements Serializable {
@@ -10,11 +10,15 @@ package de.intevation.lada.model.master;
 import java.io.Serializable;
 
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
+import de.intevation.lada.util.data.MasterDataListener;
+
 @Entity
+@EntityListeners(MasterDataListener.class)
 @Table(schema = SchemaName.NAME)
 @NamedQuery(name = "FilterType.findAll", query = "SELECT f FROM FilterType f")
 public class FilterType implements Serializable {
@@ -0,0 +1,67 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.model.master;
+
+import java.io.Serializable;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Type;
+
+/**
+ * Images associated with a Site.
+ *
+ * Maps the image columns of the site table, which are not mapped by
+ * Site in order to load them only if explicitly requested.
+ */
+@Entity
+@Table(name = "site", schema = SchemaName.NAME)
+public class SiteImage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Integer id;
+
+    @Lob
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] img;
+
+    @Lob
+    @Type(type = "org.hibernate.type.BinaryType")
+    private byte[] map;
+
+    public SiteImage() {
+    }
+
+    public Integer getId() {
+        return this.id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public byte[] getImg() {
+        return img;
+    }
+
+    public void setImg(byte[] img) {
+        this.img = img;
+    }
+
+    public byte[] getMap() {
+        return map;
+    }
+
+    public void setMap(byte[] map) {
+        this.map = map;
+    }
+}
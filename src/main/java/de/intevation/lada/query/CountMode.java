@@ -0,0 +1,44 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.query;
+
+/**
+ * Enumeration of the ways the total count of a query result
+ * can be determined.
+ */
+public enum CountMode {
+    /**
+     * Count all entries of the result.
+     */
+    EXACT,
+
+    /**
+     * Use the row estimate of the database query planner.
+     */
+    ESTIMATE,
+
+    /**
+     * Do not count, but determine whether more entries follow
+     * the requested ones.
+     */
+    NONE;
+
+    /**
+     * Get the count mode for the given name, ignoring case.
+     *
+     * Used by JAX-RS to convert request parameters.
+     *
+     * @param name The name of the count mode
+     * @return The count mode
+     * @throws IllegalArgumentException if no count mode with the given
+     * name exists
+     */
+    public static CountMode fromString(String name) {
+        return valueOf(name.toUpperCase());
+    }
+}
@@ -0,0 +1,237 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+import de.intevation.lada.model.master.BaseQuery;
+import de.intevation.lada.model.master.Filter;
+import de.intevation.lada.model.master.FilterType;
+import de.intevation.lada.model.master.GridColConf;
+import de.intevation.lada.model.master.GridColMp;
+import de.intevation.lada.util.data.MasterDataChanged;
+import de.intevation.lada.util.data.Repository;
+
+/**
+ * Cache of query configuration and prepared SQL templates.
+ *
+ * Holds GridColMp and BaseQuery master data as well as the WHERE and
+ * ORDER BY clauses generated from them by QueryTools. The clauses do not
+ * depend on the filter values, but only on which filters are applied
+ * and how the result is sorted, so that e.g. paging through a result or
+ * changing filter values does not require to generate them again.
+ *
+ * Cached entries expire after MAX_AGE to pick up query configuration
+ * changed in the database. Changes of GridColMp, Filter, FilterType or
+ * BaseQuery entities via JPA clear the cache immediately.
+ *
+ * Cached GridColMp objects are shared and must not be modified.
+ */
+@ApplicationScoped
+public class QueryTemplateCache {
+
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    // Upper bound for the number of cached SQL templates
+    private static final int MAX_TEMPLATES = 1000;
+
+    private final Logger logger = Logger.getLogger(QueryTemplateCache.class);
+
+    @Inject
+    private Repository repository;
+
+    private final Map<Integer, GridColMp> gridColumns =
+        new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> baseQueries =
+        new ConcurrentHashMap<>();
+
+    private final Map<List<Object>, QueryTemplate> templates =
+        new ConcurrentHashMap<>();
+
+    private volatile long validSince = System.currentTimeMillis();
+
+    /**
+     * Prepared SQL of a query configuration.
+     */
+    public static class QueryTemplate {
+
+        private final String sql;
+
+        private final String sortSql;
+
+        /**
+         * @param sql Base query including WHERE clause
+         * @param sortSql ORDER BY clause
+         */
+        public QueryTemplate(String sql, String sortSql) {
+            this.sql = sql;
+            this.sortSql = sortSql;
+        }
+
+        /**
+         * @return Base query including WHERE clause
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return ORDER BY clause
+         */
+        public String getSortSql() {
+            return sortSql;
+        }
+    }
+
+    /**
+     * Get GridColMp by id.
+     *
+     * @param id The id
+     * @return Shared GridColMp instance or null if not existing
+     */
+    public GridColMp getGridColMp(Integer id) {
+        checkAge();
+        GridColMp gridColumn = gridColumns.get(id);
+        if (gridColumn == null) {
+            gridColumn = repository.getByIdPlain(GridColMp.class, id);
+            if (gridColumn != null) {
+                gridColumns.put(id, gridColumn);
+            }
+        }
+        return gridColumn;
+    }
+
+    /**
+     * Get prepared SQL for the given query configuration.
+     *
+     * @param customColumns Column configurations with GridColMp set
+     * @return The query template
+     */
+    public QueryTemplate getTemplate(List<GridColConf> customColumns) {
+        checkAge();
+        Integer baseQueryId =
+            customColumns.get(0).getGridColMp().getBaseQueryId();
+        List<Object> key = templateKey(baseQueryId, customColumns);
+        QueryTemplate template = templates.get(key);
+        if (template == null) {
+            template = new QueryTemplate(
+                QueryTools.prepareSql(
+                    customColumns, getBaseQuerySql(baseQueryId)),
+                QueryTools.prepareSortSql(customColumns));
+            if (templates.size() >= MAX_TEMPLATES) {
+                templates.clear();
+            }
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void invalidate() {
+        gridColumns.clear();
+        baseQueries.clear();
+        templates.clear();
+        validSince = System.currentTimeMillis();
+    }
+
+    /**
+     * Invalidate cache after successful transactions changing
+     * query configuration.
+     *
+     * @param event The event
+     */
+    void onMasterDataChanged(
+        @Observes(during = TransactionPhase.AFTER_SUCCESS)
+        MasterDataChanged event
+    ) {
+        if (event.concerns(
+                GridColMp.class, Filter.class,
+                FilterType.class, BaseQuery.class)
+        ) {
+            logger.debug(String.format(
+                "%s changed: invalidate query templates",
+                event.getEntityClass().getSimpleName()));
+            invalidate();
+        }
+    }
+
+    /**
+     * Generate a key for the given query configuration containing
+     * everything QueryTools.prepareSql() and QueryTools.prepareSortSql()
+     * depend on, but no filter values.
+     *
+     * @param baseQueryId The base query
+     * @param customColumns Column configurations with GridColMp set
+     * @return The key
+     */
+    static List<Object> templateKey(
+        Integer baseQueryId,
+        List<GridColConf> customColumns
+    ) {
+        List<Object> key = new ArrayList<>();
+        key.add(baseQueryId);
+        for (GridColConf column: customColumns) {
+            key.add(column.getGridColMpId());
+            key.add(column.getSort());
+            key.add(column.getSortIndex());
+
+            boolean hasValue = column.getFilterVal() != null
+                && !column.getFilterVal().isEmpty();
+            boolean applied = column.getIsFilterActive()
+                && (hasValue || column.getIsFilterIsNull());
+            key.add(applied);
+            if (!applied) {
+                continue;
+            }
+            key.add(hasValue);
+            key.add(column.getIsFilterIsNull());
+            key.add(column.getIsFilterNegate());
+
+            // Filters might be set programmatically, e.g. for export
+            Filter filter = column.getGridColMp().getFilter();
+            key.add(filter.getSql());
+            key.add(filter.getParam());
+            String filterType = filter.getFilterType().getType();
+            key.add(filterType);
+            if (QueryTools.TAG_FILTER_TYPE.equals(filterType) && hasValue) {
+                // One parameter per tag
+                key.add(column.getFilterVal().split(",").length);
+            }
+        }
+        return key;
+    }
+
+    private String getBaseQuerySql(Integer id) {
+        String sql = baseQueries.get(id);
+        if (sql == null) {
+            sql = repository.getByIdPlain(BaseQuery.class, id).getSql();
+            baseQueries.put(id, sql);
+        }
+        return sql;
+    }
+
+    private void checkAge() {
+        if (System.currentTimeMillis() - validSince > MAX_AGE) {
+            invalidate();
+        }
+    }
+}
@@ -9,9 +9,16 @@ package de.intevation.lada.query;
 
 import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -19,17 +26,24 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.Query;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
-import de.intevation.lada.model.master.BaseQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.NativeQuery;
+
 import de.intevation.lada.model.master.Filter;
 import de.intevation.lada.model.master.GridColConf;
 import de.intevation.lada.model.master.GridColMp;
 import de.intevation.lada.model.master.Tag;
+import de.intevation.lada.util.data.QueryBuilder;
 import de.intevation.lada.util.data.Repository;
+import de.intevation.lada.util.rest.JSONBConfig;
 
 /**
  * Utility class to handle the SQL query configuration.
@@ -42,6 +56,19 @@ public class QueryTools {
     static final String GENERICTEXT_FILTER_TYPE = "generictext";
     static final String TAG_FILTER_TYPE = "tag";
     static final String TEXT_FILTER_TYPE = "text";
+    static final String DATETIME_FILTER_TYPE = "datetime";
+    static final String LISTDATETIME_FILTER_TYPE = "listdatetime";
+
+    // Name of Disp of date columns
+    static final String DATE_DISP = "date";
+
+    // Format of dates in result rows serialized to JSON
+    private static final DateTimeFormatter KEYSET_DATE_FORMAT =
+        DateTimeFormatter.ofPattern(JSONBConfig.DATE_FORMAT);
+
+    // Row estimate in the output of EXPLAIN
+    private static final Pattern PLAN_ROWS_PATTERN =
+        Pattern.compile("\\(cost=\\S+ rows=(\\d+) ");
 
     private Repository repository;
 
@@ -51,45 +78,132 @@ public class QueryTools {
     // ORDER BY clause
     private String sortSql;
 
+    // Keyset pagination predicate and its parameters
+    private String keysetSql = "";
+    private Map<String, Object> keysetValues = Map.of();
+
     private List<GridColConf> customColumns;
 
     private MultivaluedMap<String, Object> filterValues;
 
+    // Position of result columns by GridColMp.dataIndex
+    private Map<String, Integer> columnIndex;
+
+    // Number of result columns
+    private int rowLength;
+
     /**
      * @param repository Repository for database access.
+     * @param templateCache Cache of query configuration and prepared SQL.
      * @param customColumns Customized column configs, containing
      *      filter, sorting and references to the respective column.
      */
     public QueryTools(
         Repository repository,
+        QueryTemplateCache templateCache,
         List<GridColConf> customColumns
     )  throws IllegalArgumentException {
         this.repository = repository;
 
         for (GridColConf columnValue : customColumns) {
             if (columnValue.getGridColMp() == null) {
-                GridColMp gridColumn = repository.getByIdPlain(
-                    GridColMp.class, columnValue.getGridColMpId());
-                columnValue.setGridColMp(gridColumn);
+                columnValue.setGridColMp(templateCache.getGridColMp(
+                        columnValue.getGridColMpId()));
             }
         }
         this.customColumns = customColumns;
 
-        this.sql = prepareSql(
-            customColumns,
-            repository.getByIdPlain(
-                BaseQuery.class,
-                customColumns.get(0).getGridColMp().getBaseQueryId()
-            ).getSql());
+        Map<String, Integer> index = new LinkedHashMap<>();
+        for (GridColConf column: customColumns) {
+            int position = column.getGridColMp().getPosition();
+            index.put(column.getGridColMp().getDataIndex(), position - 1);
+            this.rowLength = Math.max(this.rowLength, position);
+        }
+        this.columnIndex = Collections.unmodifiableMap(index);
 
-        this.sortSql = prepareSortSql(customColumns);
+        QueryTemplateCache.QueryTemplate template =
+            templateCache.getTemplate(customColumns);
+        this.sql = template.getSql();
+        this.sortSql = template.getSortSql();
 
         // Initialize this.filterValues
         prepareFilters();
     };
 
     public String getSql() {
-        return this.sql + this.sortSql;
+        if (this.keysetSql.isEmpty()) {
+            return this.sql + this.sortSql;
+        }
+        return "SELECT * FROM (" + this.sql + ") AS keyset_query WHERE "
+            + this.keysetSql + this.sortSql;
+    }
+
+    /**
+     * Restrict the result to the entries following the given entry
+     * in sort order (keyset pagination).
+     *
+     * In contrast to an offset, the database does not need to read and
+     * discard all preceding entries, so that retrieving a page deep in
+     * the result is as fast as retrieving the first page.
+     *
+     * The sort columns should identify an entry uniquely, e.g. by
+     * including an ID column as last sort criterion. Otherwise, entries
+     * having the same sort key as the given entry are skipped.
+     *
+     * @param lastRow The values of the sort columns of the last entry
+     * received, mapped by GridColMp.dataIndex, e.g. the last entry
+     * of the previous page.
+     * @throws IllegalArgumentException if the result is not sorted or
+     * a value for a sort column is missing
+     */
+    public void seekAfter(
+        Map<String, Object> lastRow
+    ) throws IllegalArgumentException {
+        List<GridColConf> sortColumns = getSortColumns(this.customColumns);
+        if (sortColumns.isEmpty()) {
+            throw new IllegalArgumentException(
+                "keyset pagination requires sorting");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        List<String> predicates = new ArrayList<>();
+        // Columns preceding the current one are equal to the last row
+        String equalSql = "";
+        for (int i = 0; i < sortColumns.size(); i++) {
+            GridColConf column = sortColumns.get(i);
+            String dataIndex = column.getGridColMp().getDataIndex();
+            if (!lastRow.containsKey(dataIndex)) {
+                throw new IllegalArgumentException(String.format(
+                        "missing keyset value for column: %s", dataIndex));
+            }
+            Object value = toKeysetParameter(
+                column.getGridColMp(), lastRow.get(dataIndex));
+            String param = "keyset" + i;
+            boolean desc = "desc".equalsIgnoreCase(column.getSort().trim());
+
+            // PostgreSQL sorts NULL values as if larger than any other
+            String followingSql;
+            if (value == null) {
+                followingSql = desc ? dataIndex + " IS NOT NULL" : null;
+            } else {
+                values.put(param, value);
+                followingSql = desc
+                    ? dataIndex + " < :" + param
+                    : "(" + dataIndex + " > :" + param
+                    + " OR " + dataIndex + " IS NULL)";
+            }
+            if (followingSql != null) {
+                predicates.add("(" + equalSql + followingSql + ")");
+            }
+
+            equalSql += value == null
+                ? dataIndex + " IS NULL AND "
+                : dataIndex + " = :" + param + " AND ";
+        }
+
+        this.keysetSql = predicates.isEmpty()
+            ? "FALSE" : String.join(" OR ", predicates);
+        this.keysetValues = values;
     }
 
     public MultivaluedMap<String, Object> getFilterValues() {
@@ -119,43 +233,94 @@ public class QueryTools {
         int offset,
         Integer limit
     ) {
-        Query query = prepareQuery(getSql()).setFirstResult(offset);
+        Query query = prepareResultQuery().setFirstResult(offset);
         if (limit != null) {
             query.setMaxResults(limit);
         }
 
         List<Map<String, Object>> ret = new ArrayList<Map<String, Object>>();
         for (Object row: query.getResultList()) {
-            Map<String, Object> set = new HashMap<String, Object>();
-            /* If row contains or is a java.sql.Timestamp:
-             * Convert to date to allow serialization
-             */
-            if (row instanceof Object[]) {
-                Object[] rowArr = (Object[]) row;
-                for (int i = 0; i < rowArr.length; i++) {
-                    Object col = rowArr[i];
-                    if (col instanceof Timestamp) {
-                        Timestamp ts = (Timestamp) col;
-                        rowArr[i] = new Date(ts.getTime());
-                    }
-                }
-            } else if (row instanceof Timestamp) {
-                Timestamp ts = (Timestamp) row;
-                row = new Date(ts.getTime());
-            }
-            for (GridColConf column: this.customColumns) {
-                set.put(
-                    column.getGridColMp().getDataIndex(),
-                    row instanceof Object[]
-                        ? ((Object[]) row)[
-                            column.getGridColMp().getPosition() - 1]
-                        : row);
-            }
-            ret.add(set);
+            ret.add(toResultMap(row));
         }
         return ret;
     }
 
+    /**
+     * Execute query and return a subset defined by offset and limit
+     * of the filtered and sorted results as lazily evaluated result.
+     *
+     * Rows are fetched from the database in chunks of the given size
+     * while iterating the result, instead of loading the whole result
+     * into memory at once. The result has to be closed after use in order
+     * to release the underlying database cursor.
+     *
+     * @param offset The position of the first result to retrieve,
+     * numbered from 0.
+     * @param limit The maximum number of results to retrieve,
+     * or null for no limit.
+     * @param fetchSize Number of rows to fetch from the database at once.
+     * @return Scrollable result.
+     */
+    public ScrollableQueryResult scrollResultForQuery(
+        int offset,
+        Integer limit,
+        int fetchSize
+    ) {
+        Query query = prepareResultQuery().setFirstResult(offset);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+        ScrollableResults results = query.unwrap(NativeQuery.class)
+            .setFetchSize(fetchSize)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        return new ScrollableQueryResult(results, this::toResultMap);
+    }
+
+    /**
+     * Execute query and return the filtered and sorted results as stream.
+     *
+     * See {@link #scrollResultForQuery(int, Integer, int)}.
+     * The stream has to be closed after use in order
+     * to release the underlying database cursor.
+     *
+     * @param fetchSize Number of rows to fetch from the database at once.
+     * @return Stream of result maps.
+     */
+    public Stream<Map<String, Object>> streamResultForQuery(int fetchSize) {
+        ScrollableQueryResult result =
+            scrollResultForQuery(0, null, fetchSize);
+        return StreamSupport.stream(result.spliterator(), false)
+            .onClose(result::close);
+    }
+
+    /**
+     * Convert a result row into a map with GridColMp.dataIndex as keys.
+     *
+     * @param resultRow Result row as returned by the native query.
+     * @return Map view of the column values.
+     */
+    private Map<String, Object> toResultMap(Object resultRow) {
+        Object[] row;
+        if (resultRow instanceof Object[]) {
+            row = (Object[]) resultRow;
+        } else {
+            // Single column result: Every column gets the same value
+            row = new Object[this.rowLength];
+            Arrays.fill(row, resultRow);
+        }
+        /* If row contains a java.sql.Timestamp:
+         * Convert to date to allow serialization
+         */
+        for (int i = 0; i < row.length; i++) {
+            Object col = row[i];
+            if (col instanceof Timestamp) {
+                Timestamp ts = (Timestamp) col;
+                row[i] = new Date(ts.getTime());
+            }
+        }
+        return new ResultRow(this.columnIndex, row);
+    }
+
     /**
      * Get total count of entries a filtered query would return.
      *
@@ -167,6 +332,37 @@ public class QueryTools {
         return ((BigInteger) q.getSingleResult()).intValueExact();
     }
 
+    /**
+     * Get the number of entries a filtered query would return as estimated
+     * by the database query planner.
+     *
+     * This is much cheaper than counting the entries, but the estimate
+     * might be far off, e.g. if table statistics are outdated.
+     *
+     * @return Estimated number of entries the given query would return.
+     */
+    public int getEstimatedCountForQuery() {
+        Query q = prepareQuery("EXPLAIN " + this.sql);
+        // The first line of the plan describes the top-level node
+        return parsePlanRows((String) q.getResultList().get(0));
+    }
+
+    /**
+     * Get the estimated number of rows from a line of EXPLAIN output.
+     *
+     * @param planLine Line of the query plan describing a plan node
+     * @return Estimated number of rows, capped at Integer.MAX_VALUE
+     */
+    static int parsePlanRows(String planLine) {
+        Matcher matcher = PLAN_ROWS_PATTERN.matcher(planLine);
+        if (!matcher.find()) {
+            throw new IllegalStateException(
+                "Could not find row estimate in query plan: " + planLine);
+        }
+        return (int) Math.min(
+            Long.parseLong(matcher.group(1)), Integer.MAX_VALUE);
+    }
+
     /**
      * Complement SQL statement from base query with filter settings.
      *
@@ -306,40 +502,52 @@ public class QueryTools {
      * @return The "ORDER BY" clause
      */
     static String prepareSortSql(List<GridColConf> customColumns) {
-        TreeMap<Integer, String> sortIndMap = new TreeMap<Integer, String>();
-        String sortSql = "";
+        List<String> sortValues = new ArrayList<>();
+        for (GridColConf customColumn : getSortColumns(customColumns)) {
+            sortValues.add(
+                customColumn.getGridColMp().getDataIndex() + " "
+                + customColumn.getSort() + " ");
+        }
+        if (sortValues.isEmpty()) {
+            return "";
+        }
+        return " ORDER BY " + String.join(", ", sortValues);
+    }
+
+    /**
+     * Get the columns to sort by in order of precedence.
+     *
+     * Columns are ordered by sortIndex. Columns without sortIndex
+     * follow in the given order.
+     *
+     * @param customColumns List<GridColumnValue> with filter and sort settings.
+     * @return The columns to sort by
+     */
+    static List<GridColConf> getSortColumns(List<GridColConf> customColumns) {
+        TreeMap<Integer, List<GridColConf>> sortIndMap = new TreeMap<>();
 
         for (GridColConf customColumn : customColumns) {
             if (customColumn.getSort() != null
                 && !customColumn.getSort().isEmpty()) {
-                    String sortValue =
-                        customColumn.getGridColMp().getDataIndex() + " "
-                        + customColumn.getSort() + " ";
                 Integer key =
                     customColumn.getSortIndex() != null
                     ? customColumn.getSortIndex() : -1;
-                String value = sortIndMap.get(key);
-                value = value != null ? value + ", "  + sortValue : sortValue;
-                sortIndMap.put(key, value);
+                sortIndMap.computeIfAbsent(key, k -> new ArrayList<>())
+                    .add(customColumn);
             }
         }
 
-        if (sortIndMap.size() > 0) {
-            NavigableMap <Integer, String> orderedSorts =
-                sortIndMap.tailMap(0, true);
-            String unorderedSorts = sortIndMap.get(-1);
-
-            sortSql = String.join(", ", orderedSorts.values());
-            if (unorderedSorts != null && !unorderedSorts.isEmpty()) {
-                if (!sortSql.isEmpty()) {
-                    sortSql += ", ";
-                }
-                sortSql += unorderedSorts;
-            }
-            sortSql = " ORDER BY " + sortSql;
+        List<GridColConf> sortColumns = new ArrayList<>();
+        NavigableMap<Integer, List<GridColConf>> orderedSorts =
+            sortIndMap.tailMap(0, true);
+        for (List<GridColConf> sorts: orderedSorts.values()) {
+            sortColumns.addAll(sorts);
         }
-
-        return sortSql;
+        List<GridColConf> unorderedSorts = sortIndMap.get(-1);
+        if (unorderedSorts != null) {
+            sortColumns.addAll(unorderedSorts);
+        }
+        return sortColumns;
     }
 
     /**
@@ -380,12 +588,14 @@ public class QueryTools {
                     String[] tagIds = filterValue.split(",");
                     int tagNumber = tagIds.length;
                     String param = filter.getParam();
+                    Map<Integer, String> tagNames = getTagNames(tagIds);
                     for (int i = 0; i < tagNumber; i++) {
-                        String tag =
-                            repository.getByIdPlain(
-                                Tag.class,
-                                Integer.parseInt(tagIds[i])
-                            ).getName();
+                        String tag = tagNames.get(Integer.valueOf(tagIds[i]));
+                        if (tag == null) {
+                            throw new IllegalArgumentException(
+                                String.format(
+                                    "tag does not exist: %s", tagIds[i]));
+                        }
                         this.filterValues.add(param + i, tag);
                     }
                     continue;
@@ -482,6 +692,83 @@ public class QueryTools {
         }
     }
 
+    /**
+     * Load the names of the given tags with a single query.
+     *
+     * @param tagIds The IDs of the tags
+     * @return Map of tag IDs to names
+     */
+    private Map<Integer, String> getTagNames(String[] tagIds) {
+        Set<Integer> ids = new HashSet<>();
+        for (String tagId: tagIds) {
+            ids.add(Integer.valueOf(tagId));
+        }
+        QueryBuilder<Tag> builder = repository.queryBuilder(Tag.class)
+            .andIn("id", ids);
+        Map<Integer, String> names = new HashMap<>();
+        for (Tag tag: repository.filterPlain(builder.getQuery())) {
+            names.put(tag.getId(), tag.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Create query retrieving the result and set all parameters.
+     */
+    private Query prepareResultQuery() {
+        Query query = prepareQuery(getSql());
+        for (Map.Entry<String, Object> value: this.keysetValues.entrySet()) {
+            query.setParameter(value.getKey(), value.getValue());
+        }
+        return query;
+    }
+
+    /**
+     * Convert a value of a result row as received from a client to
+     * a query parameter.
+     *
+     * Values of date columns are serialized as strings, but need to be
+     * compared as timestamps in the database.
+     *
+     * @throws IllegalArgumentException if the value of a date column
+     * cannot be parsed
+     */
+    private static Object toKeysetParameter(
+        GridColMp column,
+        Object value
+    ) throws IllegalArgumentException {
+        if (value instanceof String && isDateColumn(column)) {
+            try {
+                return Timestamp.from(OffsetDateTime.parse(
+                        (String) value, KEYSET_DATE_FORMAT).toInstant());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(String.format(
+                        "invalid keyset value for date column: %s",
+                        column.getDataIndex()), e);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return True if the column is declared to contain dates, either by
+     * its Disp or by the type of its filter
+     */
+    static boolean isDateColumn(GridColMp column) {
+        if (column.getDisp() != null
+            && DATE_DISP.equals(column.getDisp().getName())
+        ) {
+            return true;
+        }
+        Filter filter = column.getFilter();
+        if (filter == null || filter.getFilterType() == null) {
+            return false;
+        }
+        String filterType = filter.getFilterType().getType();
+        return DATETIME_FILTER_TYPE.equals(filterType)
+            || LISTDATETIME_FILTER_TYPE.equals(filterType);
+    }
+
     /**
      * Create query from given SQL and set parameters from this.filterValues.
      */
@@ -0,0 +1,133 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.query;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map view of a single row of a query result.
+ *
+ * The column values are kept in the array returned by the database query.
+ * The mapping of GridColMp.dataIndex to array position is shared
+ * between all rows of a result, so that a row does not need its own hash
+ * table. Values for keys not contained in the column index
+ * (e.g. "readonly" or sub-data) are stored in an additional map
+ * which is created on first use.
+ */
+public class ResultRow extends AbstractMap<String, Object> {
+
+    private final Map<String, Integer> columnIndex;
+
+    private final Object[] values;
+
+    private Map<String, Object> additional;
+
+    /**
+     * @param columnIndex Map of column names to positions in values,
+     *     shared between all rows of a result.
+     * @param values The column values.
+     */
+    public ResultRow(Map<String, Integer> columnIndex, Object[] values) {
+        this.columnIndex = columnIndex;
+        this.values = values;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Integer ndx = columnIndex.get(key);
+        if (ndx != null) {
+            return values[ndx];
+        }
+        return additional != null ? additional.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return columnIndex.containsKey(key)
+            || additional != null && additional.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Integer ndx = columnIndex.get(key);
+        if (ndx != null) {
+            Object old = values[ndx];
+            values[ndx] = value;
+            return old;
+        }
+        if (additional == null) {
+            additional = new LinkedHashMap<>();
+        }
+        return additional.put(key, value);
+    }
+
+    @Override
+    public int size() {
+        return columnIndex.size()
+            + (additional != null ? additional.size() : 0);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ResultRow.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates over the indexed columns first and the additional
+     * entries afterwards.
+     */
+    private class EntryIterator
+        implements Iterator<Map.Entry<String, Object>> {
+
+        private final Iterator<Map.Entry<String, Integer>> columns =
+            columnIndex.entrySet().iterator();
+
+        private Iterator<Map.Entry<String, Object>> others;
+
+        @Override
+        public boolean hasNext() {
+            if (columns.hasNext()) {
+                return true;
+            }
+            if (others == null) {
+                others = additional != null
+                    ? additional.entrySet().iterator() : null;
+            }
+            return others != null && others.hasNext();
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (columns.hasNext()) {
+                Map.Entry<String, Integer> column = columns.next();
+                return new AbstractMap.SimpleImmutableEntry<>(
+                    column.getKey(), values[column.getValue()]);
+            }
+            return others.next();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.query;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.hibernate.ScrollableResults;
+
+/**
+ * Lazily evaluated query result backed by a database cursor.
+ *
+ * Rows are read from the database while iterating, so the result is never
+ * held in memory as a whole. The result can be iterated only once and
+ * has to be closed after use in order to release the database cursor.
+ */
+public class ScrollableQueryResult
+    implements Iterable<Map<String, Object>>, AutoCloseable {
+
+    private final ScrollableResults results;
+
+    private final Function<Object[], Map<String, Object>> rowMapper;
+
+    private boolean iterated;
+
+    /**
+     * @param results The scrollable results of the executed query.
+     * @param rowMapper Function converting a database row to a map.
+     */
+    ScrollableQueryResult(
+        ScrollableResults results,
+        Function<Object[], Map<String, Object>> rowMapper
+    ) {
+        this.results = results;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * @return Iterator over the result rows.
+     * @throws IllegalStateException if called more than once
+     */
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        if (iterated) {
+            throw new IllegalStateException(
+                "Query result can be iterated only once");
+        }
+        iterated = true;
+
+        return new Iterator<Map<String, Object>>() {
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    hasNext = results.next();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                return rowMapper.apply(results.get());
+            }
+        };
+    }
+
+    /**
+     * Release the underlying database cursor.
+     */
+    @Override
+    public void close() {
+        results.close();
+    }
+}
@@ -7,7 +7,10 @@
  */
 package de.intevation.lada.rest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
@@ -25,7 +28,6 @@ import de.intevation.lada.lock.ObjectLocker;
 import de.intevation.lada.model.lada.MeasVal;
 import de.intevation.lada.model.lada.Measm;
 import de.intevation.lada.model.lada.Sample;
-import de.intevation.lada.model.master.EnvMedium;
 import de.intevation.lada.util.annotation.AuthorizationConfig;
 import de.intevation.lada.util.auth.Authorization;
 import de.intevation.lada.util.auth.AuthorizationType;
@@ -235,6 +237,123 @@ public class MeasValService extends LadaService {
             MeasVal.class);
     }
 
+    /**
+     * Create and update MeasVal objects of one Measm object.
+     *
+     * Objects without id are created, others are updated. Authorization
+     * is checked once for the Measm object. If any of the objects is not
+     * valid, none of them is persisted.
+     *
+     * @param messwerte The MeasVal objects, all with the same measmId.
+     * @return Response with list of Response objects for each MeasVal,
+     * in order of the given objects.
+     */
+    @POST
+    @Path("bulk")
+    public Response createOrUpdateAll(
+        List<MeasVal> messwerte
+    ) {
+        if (messwerte.isEmpty()) {
+            return new Response(true, StatusCodes.OK, List.of());
+        }
+        Integer measmId = messwerte.get(0).getMeasmId();
+        boolean hasNew = false;
+        boolean hasExisting = false;
+        for (MeasVal messwert: messwerte) {
+            if (measmId == null || !measmId.equals(messwert.getMeasmId())) {
+                return new Response(false, StatusCodes.VALUE_AMBIGOUS, null);
+            }
+            if (messwert.getId() == null) {
+                hasNew = true;
+            } else {
+                hasExisting = true;
+            }
+        }
+        // Authorization of MeasVal objects depends on the Measm only
+        if (hasNew && !authorization.isAuthorized(
+                messwerte.get(0), RequestMethod.POST, MeasVal.class)
+            || hasExisting && !authorization.isAuthorized(
+                messwerte.get(0), RequestMethod.PUT, MeasVal.class)
+        ) {
+            return new Response(false, StatusCodes.NOT_ALLOWED, null);
+        }
+
+        // Values of a measurement have to be unique within the request
+        Map<Integer, Integer> measdIdCount = new HashMap<>();
+        for (MeasVal messwert: messwerte) {
+            measdIdCount.merge(messwert.getMeasdId(), 1, Integer::sum);
+        }
+
+        List<Violation> violations = new ArrayList<>();
+        boolean valid = true;
+        for (MeasVal messwert: messwerte) {
+            if (messwert.getId() != null && lock.isLocked(messwert)) {
+                return new Response(false, StatusCodes.CHANGED_VALUE, null);
+            }
+            Violation violation = validator.validate(messwert);
+            if (measdIdCount.get(messwert.getMeasdId()) > 1) {
+                violation.addError("measdId", StatusCodes.VALUE_AMBIGOUS);
+            }
+            valid &= !violation.hasErrors();
+            violations.add(violation);
+        }
+
+        List<MeasVal> newMesswerte = new ArrayList<>();
+        List<MeasVal> existingMesswerte = new ArrayList<>();
+        // Creating sets the id of the given objects
+        boolean[] isNew = new boolean[messwerte.size()];
+        for (int i = 0; i < messwerte.size(); i++) {
+            isNew[i] = messwerte.get(i).getId() == null;
+            if (isNew[i]) {
+                newMesswerte.add(messwerte.get(i));
+            } else {
+                existingMesswerte.add(messwerte.get(i));
+            }
+        }
+        if (valid) {
+            newMesswerte = repository.createAll(newMesswerte);
+            existingMesswerte = repository.updateAll(existingMesswerte);
+        }
+
+        List<Response> responseList = new ArrayList<>();
+        int newIndex = 0;
+        int existingIndex = 0;
+        for (int i = 0; i < messwerte.size(); i++) {
+            MeasVal messwert = messwerte.get(i);
+            Violation violation = violations.get(i);
+            Response response;
+            if (!valid) {
+                response = new Response(
+                    !violation.hasErrors(),
+                    violation.hasErrors()
+                        ? StatusCodes.ERROR_VALIDATION : StatusCodes.OK,
+                    messwert);
+                response.setErrors(violation.getErrors());
+                response.setWarnings(violation.getWarnings());
+                response.setNotifications(violation.getNotifications());
+            } else {
+                response = new Response(
+                    true,
+                    StatusCodes.OK,
+                    isNew[i]
+                        ? newMesswerte.get(newIndex++)
+                        : existingMesswerte.get(existingIndex++));
+                if (violation.hasWarnings()) {
+                    response.setWarnings(violation.getWarnings());
+                }
+                if (violation.hasNotifications()) {
+                    response.setNotifications(violation.getNotifications());
+                }
+                response = authorization.filter(response, MeasVal.class);
+            }
+            responseList.add(response);
+        }
+        return new Response(
+            valid,
+            valid ? StatusCodes.OK : StatusCodes.ERROR_VALIDATION,
+            responseList);
+    }
+
     /**
      * Normalise all MeasVal objects connected to the given Messung.
      * @param measmId The measm id needs to be given
@@ -250,7 +369,7 @@ public class MeasValService extends LadaService {
             return new Response(false, StatusCodes.NOT_ALLOWED, null);
         }
 
-        //Load messung, probe and umwelt to get MessEinheit to convert to
+        //Load messung and probe to get umwelt to convert for
         Measm messung = repository.getByIdPlain(Measm.class, measmId);
         if (!authorization.isAuthorized(
             messung,
@@ -268,16 +387,13 @@ public class MeasValService extends LadaService {
         ) {
             return new Response(true, StatusCodes.OP_NOT_POSSIBLE, null);
         }
-        EnvMedium umwelt =
-            repository.getByIdPlain(
-                EnvMedium.class, probe.getEnvMediumId());
         //Get all Messwert objects to convert
         QueryBuilder<MeasVal> messwertBuilder =
             repository.queryBuilder(MeasVal.class);
         messwertBuilder.and("measmId", measmId);
         List<MeasVal> messwerte = messwertNormalizer.normalizeMesswerte(
             repository.filterPlain(messwertBuilder.getQuery()),
-            umwelt.getId());
+            probe.getEnvMediumId());
 
         for (MeasVal messwert: messwerte) {
             if (!authorization.isAuthorized(
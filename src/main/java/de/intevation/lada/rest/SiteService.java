@@ -7,25 +7,30 @@
  */
 package de.intevation.lada.rest;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
 import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.JoinType;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
-import javax.servlet.http.HttpServletRequest;
 import javax.persistence.Query;
-import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.GET;
 import javax.ws.rs.NotFoundException;
@@ -35,9 +40,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.QueryParam;
 
 import org.jboss.logging.Logger;
@@ -46,6 +55,7 @@ import de.intevation.lada.factory.OrtFactory;
 import de.intevation.lada.importer.ReportItem;
 import de.intevation.lada.model.lada.Geolocat;
 import de.intevation.lada.model.lada.GeolocatMpg;
+import de.intevation.lada.model.lada.SchemaName;
 import de.intevation.lada.model.master.AdminUnit;
 import de.intevation.lada.model.master.Site;
 import de.intevation.lada.util.annotation.AuthorizationConfig;
@@ -90,12 +100,17 @@ public class SiteService extends LadaService {
     /**
      * Get Site objects.
      *
+     * Without networkId, only Site objects of the networks of the
+     * requesting user are returned.
+     *
      * @param networkId URL parameter to filter using Network.
      * Might be null (i.e. not given at all) but not an empty string.
      * @param search URL parameter to filter using given pattern. Might be null
      * (i.e. not given at all) but not an empty string.
      * @param start URL parameter used as offset for paging
      * @param limit URL parameter used as limit for paging
+     * @param validate URL parameter to disable validation of the returned
+     * Site objects, e.g. if only used for selection. Defaults to true.
      * @return Response object containing all (filtered) Site objects.
      */
     @GET
@@ -104,23 +119,75 @@ public class SiteService extends LadaService {
         @Pattern(regexp = ".+") String networkId,
         @QueryParam("search") @Pattern(regexp = ".+") String search,
         @QueryParam("start") Integer start,
-        @QueryParam("limit") Integer limit
+        @QueryParam("limit") Integer limit,
+        @QueryParam("validate") @DefaultValue("true") boolean validate
     ) {
-        List<Site> orte = new ArrayList<>();
         UserInfo user = authorization.getInfo();
         EntityManager em = repository.entityManager();
         CriteriaBuilder builder = em.getCriteriaBuilder();
+
+        CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+        Root<Site> countRoot = countQuery.from(Site.class);
+        countQuery.select(builder.count(countRoot)).where(
+            getFilter(builder, countRoot, networkId, search, user));
+        int size = em.createQuery(countQuery).getSingleResult().intValue();
+
         CriteriaQuery<Site> query = builder.createQuery(Site.class);
         Root<Site> root = query.from(Site.class);
-        Predicate filter = null;
+        query.where(getFilter(builder, root, networkId, search, user))
+            // Ensure stable order for paging
+            .orderBy(builder.asc(root.get("id")));
+        TypedQuery<Site> pageQuery = em.createQuery(query);
+        if (start != null && limit != null && limit.intValue() != 0) {
+            pageQuery.setFirstResult(start).setMaxResults(limit);
+        }
+        List<Site> orte = pageQuery.getResultList();
+
+        setReferenceCounts(orte);
+        for (Site o : orte) {
+            o.setReadonly(
+                !authorization.isAuthorized(
+                    o,
+                    RequestMethod.PUT,
+                    Site.class));
+            if (!validate) {
+                continue;
+            }
+            Violation violation = validator.validate(o);
+            if (violation.hasErrors() || violation.hasWarnings()) {
+                o.setErrors(violation.getErrors());
+                o.setWarnings(violation.getWarnings());
+                o.setNotifications(violation.getNotifications());
+            }
+        }
+        return new Response(true, StatusCodes.OK, orte, size);
+    }
+
+    /**
+     * Create filter for Site objects.
+     *
+     * @param builder CriteriaBuilder
+     * @param root Root of the query
+     * @param networkId Network to filter by or null for all networks
+     * of the given user
+     * @param search Pattern to search for or null
+     * @param user The requesting user
+     * @return The filter predicate
+     */
+    private Predicate getFilter(
+        CriteriaBuilder builder,
+        Root<Site> root,
+        String networkId,
+        String search,
+        UserInfo user
+    ) {
+        Predicate filter;
         if (networkId != null) {
-            Predicate netzbetreiberFilter =
-                builder.equal(root.get("networkId"), networkId);
-            filter = builder.and(netzbetreiberFilter);
+            filter = builder.equal(root.get("networkId"), networkId);
+        } else if (user.getNetzbetreiber().isEmpty()) {
+            filter = builder.disjunction();
         } else {
-            for (String nb : user.getNetzbetreiber()) {
-                builder.or(builder.equal(root.get("networkId"), nb));
-            }
+            filter = root.get("networkId").in(user.getNetzbetreiber());
         }
         if (search != null) {
             Join<Site, AdminUnit> join =
@@ -135,43 +202,9 @@ public class SiteService extends LadaService {
                 builder.like(join.get("name"), pattern);
             Predicate searchFilter =
                 builder.or(idFilter, kurzTextFilter, langtextFilter, bezFilter);
-            filter =
-                filter == null
-                ? searchFilter : builder.and(filter, searchFilter);
-        }
-        if (filter != null) {
-            query.where(filter);
-        }
-        orte = repository.filterPlain(query);
-
-        int size = orte.size();
-        // TODO: Push paging down to database
-        if (start != null && limit != null) {
-            int end = limit + start;
-            if (limit.intValue() == 0 || end > size) {
-                end = size;
-            }
-            orte = orte.subList(start, end);
-        }
-        for (Site o : orte) {
-            List<Geolocat> zuordnungs = getOrtsZuordnungs(o);
-            o.setReferenceCount(zuordnungs.size());
-            o.setPlausibleReferenceCount(getPlausibleRefs(o.getId()));
-            List<GeolocatMpg> zuordnungsMp = getOrtsZuordnungsMp(o);
-            o.setReferenceCountMp(zuordnungsMp.size());
-            o.setReadonly(
-                !authorization.isAuthorized(
-                    o,
-                    RequestMethod.PUT,
-                    Site.class));
-            Violation violation = validator.validate(o);
-            if (violation.hasErrors() || violation.hasWarnings()) {
-                o.setErrors(violation.getErrors());
-                o.setWarnings(violation.getWarnings());
-                o.setNotifications(violation.getNotifications());
-            }
+            filter = builder.and(filter, searchFilter);
         }
-        return new Response(true, StatusCodes.OK, orte, size);
+        return filter;
     }
 
     /**
@@ -190,11 +223,7 @@ public class SiteService extends LadaService {
         if (ort == null) {
             return new Response(false, StatusCodes.NOT_EXISTING, null);
         }
-        List<Geolocat> zuordnungs = getOrtsZuordnungs(ort);
-        ort.setReferenceCount(zuordnungs.size());
-        ort.setPlausibleReferenceCount(getPlausibleRefs(ort.getId()));
-        List<GeolocatMpg> zuordnungsMp = getOrtsZuordnungsMp(ort);
-        ort.setReferenceCountMp(zuordnungsMp.size());
+        setReferenceCounts(List.of(ort));
         ort.setReadonly(
             !authorization.isAuthorized(
                 ort,
@@ -371,23 +400,55 @@ public class SiteService extends LadaService {
     /**
      * Retrieve image associated with site.
      *
+     * The response contains ETag and Last-Modified headers derived from
+     * the last modification of the site, so that clients can use
+     * conditional requests to avoid transferring unchanged images.
+     *
      * @param id ID of site
      * @param type Type of image (img or map)
+     * @param request The request
      * @return Image for given site of given type
      * @throws NotFoundException if no site exists with given ID
      */
     @GET
     @Path("{id}/{type}")
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    public byte[] getSiteImage(
+    public javax.ws.rs.core.Response getSiteImage(
             @PathParam("id") Integer id,
-            @PathParam("type") @Pattern(regexp = "img|map") String type
+            @PathParam("type") @Pattern(regexp = "img|map") String type,
+            @Context Request request
     ) {
         Site site = repository.getByIdPlain(Site.class, id);
         if (site == null) {
             throw new NotFoundException();
         }
-        return type.equals("map") ? site.getMap() : site.getImg();
+        Date lastMod = site.getLastMod();
+        EntityTag etag = null;
+        if (lastMod != null) {
+            etag = new EntityTag(
+                String.format("%s-%d", type, lastMod.getTime()));
+            ResponseBuilder notModified =
+                request.evaluatePreconditions(lastMod, etag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+        }
+
+        List<byte[]> image = repository.entityManager().createQuery(
+            "SELECT s." + imageAttribute(type)
+            + " FROM SiteImage s WHERE s.id = :id", byte[].class)
+            .setParameter("id", id)
+            .getResultList();
+        if (image.isEmpty() || image.get(0) == null) {
+            return javax.ws.rs.core.Response.noContent().build();
+        }
+        byte[] content = image.get(0);
+        ResponseBuilder response = javax.ws.rs.core.Response.ok(
+            (StreamingOutput) output -> output.write(content));
+        if (etag != null) {
+            response.tag(etag).lastModified(lastMod);
+        }
+        return response.build();
     }
 
     /**
@@ -395,43 +456,55 @@ public class SiteService extends LadaService {
      *
      * @param id ID of site
      * @param type Type of image (img or map)
-     * @param request The upload request
+     * @param image The image data
      * @throws ForbiddenException if updating the site is not allowed
-     * @throws IOException if length of request body cannot be retrieved
-     * or other I/O errors occur.
+     * @throws IOException if reading the request body fails
      */
     @POST
     @Path("{id}/{type}")
-    @Consumes(MediaType.TEXT_PLAIN)
+    @Consumes(MediaType.APPLICATION_OCTET_STREAM)
     public void uploadSiteImage(
             @PathParam("id") Integer id,
             @PathParam("type") @Pattern(regexp = "img|map") String type,
-            @Context HttpServletRequest request,
-            @NotBlank String dataUrl
+            InputStream image
     ) throws IOException {
-        Site site = repository.getByIdPlain(Site.class, id);
-        if (!authorization.isAuthorized(
-                site,
-                RequestMethod.PUT,
-                Site.class)) {
-            throw new ForbiddenException();
-        }
-        int contentLength = request.getContentLength();
-        if (contentLength == -1) {
-            throw new IOException();
-        }
-        String encodingPrefix = "base64,";
-        int contentStartIndex = dataUrl.indexOf(encodingPrefix)
-                + encodingPrefix.length();
-
-        byte[] img = Base64.getDecoder().decode(
-                dataUrl.substring(contentStartIndex));
-        if (type.equals("map")) {
-            site.setMap(img);
-        } else {
-            site.setImg(img);
+        authorizeImageUpdate(id);
+        setSiteImage(id, type, image.readAllBytes());
+    }
+
+    /**
+     * Associate image given as Base64 encoded data URL with site.
+     *
+     * @param id ID of site
+     * @param type Type of image (img or map)
+     * @param dataUrl The data URL
+     * @throws ForbiddenException if updating the site is not allowed
+     * @throws BadRequestException if the request body is not a data URL
+     * @throws IOException if reading or decoding the request body fails
+     */
+    @POST
+    @Path("{id}/{type}")
+    @Consumes(MediaType.TEXT_PLAIN)
+    public void uploadSiteImageDataUrl(
+            @PathParam("id") Integer id,
+            @PathParam("type") @Pattern(regexp = "img|map") String type,
+            InputStream dataUrl
+    ) throws IOException {
+        authorizeImageUpdate(id);
+        InputStream in = new BufferedInputStream(dataUrl);
+        // Skip media type and encoding preceding the data
+        int c;
+        do {
+            c = in.read();
+            if (c == -1) {
+                throw new BadRequestException();
+            }
+        } while (c != ',');
+        byte[] image = Base64.getMimeDecoder().wrap(in).readAllBytes();
+        if (image.length == 0) {
+            throw new BadRequestException();
         }
-        repository.update(site);
+        setSiteImage(id, type, image);
     }
 
     /**
@@ -447,19 +520,37 @@ public class SiteService extends LadaService {
             @PathParam("id") Integer id,
             @PathParam("type") @Pattern(regexp = "img|map") String type
     ) {
+        authorizeImageUpdate(id);
+        setSiteImage(id, type, null);
+    }
+
+    private void authorizeImageUpdate(Integer id) {
         Site site = repository.getByIdPlain(Site.class, id);
+        if (site == null) {
+            throw new NotFoundException();
+        }
         if (!authorization.isAuthorized(
                 site,
                 RequestMethod.PUT,
                 Site.class)) {
             throw new ForbiddenException();
         }
-        if (type.equals("map")) {
-            site.setMap(null);
-        } else {
-            site.setImg(null);
-        }
-        repository.update(site);
+    }
+
+    /*
+     * Update image column without loading the images of the site.
+     */
+    private void setSiteImage(Integer id, String type, byte[] image) {
+        repository.entityManager().createQuery(
+            "UPDATE SiteImage s SET s." + imageAttribute(type)
+            + " = :image WHERE s.id = :id")
+            .setParameter("image", image)
+            .setParameter("id", id)
+            .executeUpdate();
+    }
+
+    private static String imageAttribute(String type) {
+        return "map".equals(type) ? "map" : "img";
     }
 
     /**
@@ -474,6 +565,39 @@ public class SiteService extends LadaService {
         return repository.filterPlain(refBuilder.getQuery());
     }
 
+    /**
+     * Set the reference counts of the given Site objects using
+     * a single query.
+     * @param sites Site instances
+     */
+    private void setReferenceCounts(List<Site> sites) {
+        if (sites.isEmpty()) {
+            return;
+        }
+        Map<Integer, Site> sitesById = new HashMap<>();
+        for (Site site: sites) {
+            sitesById.put(site.getId(), site);
+        }
+        Query query = repository.queryFromString(
+            "SELECT s.id, "
+            + "(SELECT count(*) FROM " + SchemaName.NAME + ".geolocat g "
+            + "WHERE g.site_id = s.id), "
+            + "(SELECT count(*) FROM " + SchemaName.NAME + ".geolocat_mpg g "
+            + "WHERE g.site_id = s.id), "
+            + SchemaName.NAME + ".get_measms_per_site(s.id) "
+            + "FROM " + de.intevation.lada.model.master.SchemaName.NAME
+            + ".site s WHERE s.id IN (:ids)")
+            .setParameter("ids", sitesById.keySet());
+        @SuppressWarnings("unchecked")
+        List<Object[]> counts = query.getResultList();
+        for (Object[] row: counts) {
+            Site site = sitesById.get(row[0]);
+            site.setReferenceCount(((Number) row[1]).intValue());
+            site.setReferenceCountMp(((Number) row[2]).intValue());
+            site.setPlausibleReferenceCount(((Number) row[3]).intValue());
+        }
+    }
+
     private int getPlausibleRefs(int sampleId) {
         Query query =
         repository.queryFromString(
@@ -18,6 +18,7 @@ import javax.ws.rs.core.MultivaluedHashMap;
 
 import de.intevation.lada.model.QueryColumns;
 import de.intevation.lada.model.master.GridColConf;
+import de.intevation.lada.query.QueryTemplateCache;
 import de.intevation.lada.query.QueryTools;
 import de.intevation.lada.util.annotation.AuthorizationConfig;
 import de.intevation.lada.util.auth.Authorization;
@@ -40,6 +41,12 @@ public class SqlService extends LadaService {
     @Inject
     private Repository repository;
 
+    /**
+     * Cache of query configuration and prepared SQL.
+     */
+    @Inject
+    private QueryTemplateCache templateCache;
+
     /**
      * The header authorization module.
      */
@@ -80,7 +87,8 @@ public class SqlService extends LadaService {
         }
 
         try {
-            QueryTools queryTools = new QueryTools(repository, gridColumnValues);
+            QueryTools queryTools = new QueryTools(
+                repository, templateCache, gridColumnValues);
             String sql = queryTools.getSql();
             if (sql == null) {
                 return new Response(true, StatusCodes.OK, null);
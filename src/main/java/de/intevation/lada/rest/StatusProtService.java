@@ -8,8 +8,14 @@
 package de.intevation.lada.rest;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
@@ -85,6 +91,82 @@ public class StatusProtService extends LadaService {
     @Inject
     private Validator<Site> ortValidator;
 
+    /**
+     * Data needed to change the status of a set of Measm objects,
+     * loaded with one query per class and chunk of IDs.
+     *
+     * Data only needed for validation is loaded on first use.
+     */
+    private class StatusData {
+        private final Map<Integer, Measm> measms = new HashMap<>();
+        private final Map<Integer, Sample> samples = new HashMap<>();
+        private final Map<Integer, StatusProt> statusProts = new HashMap<>();
+        private final Map<Integer, StatusMp> statusMps = new HashMap<>();
+
+        private Map<Integer, List<MeasVal>> measVals;
+        private Map<Integer, List<Geolocat>> geolocats;
+        private Map<Integer, Site> sites;
+
+        StatusData(Collection<Integer> measmIds) {
+            Set<Integer> sampleIds = new HashSet<>();
+            Set<Integer> statusIds = new HashSet<>();
+            for (Measm m: repository.filterIn(
+                    Measm.class, "id", measmIds)) {
+                measms.put(m.getId(), m);
+                sampleIds.add(m.getSampleId());
+                if (m.getStatus() != null) {
+                    statusIds.add(m.getStatus());
+                }
+            }
+            for (Sample sample: repository.filterIn(
+                    Sample.class, "id", sampleIds)) {
+                samples.put(sample.getId(), sample);
+            }
+            for (StatusProt sp: repository.filterIn(
+                    StatusProt.class, "id", statusIds)) {
+                statusProts.put(sp.getId(), sp);
+            }
+            for (StatusMp mp: repository.getAllPlain(StatusMp.class)) {
+                statusMps.put(mp.getId(), mp);
+            }
+        }
+
+        List<MeasVal> getMeasVals(Integer measmId) {
+            if (measVals == null) {
+                measVals = new HashMap<>();
+                for (MeasVal mv: repository.filterIn(
+                        MeasVal.class, "measmId", measms.keySet())) {
+                    measVals.computeIfAbsent(
+                        mv.getMeasmId(), k -> new ArrayList<>()).add(mv);
+                }
+            }
+            return measVals.getOrDefault(measmId, List.of());
+        }
+
+        List<Geolocat> getGeolocats(Integer sampleId) {
+            if (geolocats == null) {
+                geolocats = new HashMap<>();
+                Set<Integer> siteIds = new HashSet<>();
+                for (Geolocat g: repository.filterIn(
+                        Geolocat.class, "sampleId", samples.keySet())) {
+                    geolocats.computeIfAbsent(
+                        g.getSampleId(), k -> new ArrayList<>()).add(g);
+                    siteIds.add(g.getSiteId());
+                }
+                sites = new HashMap<>();
+                for (Site site: repository.filterIn(
+                        Site.class, "id", siteIds)) {
+                    sites.put(site.getId(), site);
+                }
+            }
+            return geolocats.getOrDefault(sampleId, List.of());
+        }
+
+        Site getSite(Integer siteId) {
+            return sites.get(siteId);
+        }
+    }
+
     /**
      * Get StatusProt objects.
      *
@@ -149,9 +231,101 @@ public class StatusProtService extends LadaService {
             return new Response(false, StatusCodes.VALUE_MISSING, status);
         }
 
+        StatusData data = new StatusData(List.of(status.getMeasmId()));
+        List<StatusProt> newStatus = new ArrayList<>();
+        Response response = changeStatus(status, data, newStatus);
+        if (!newStatus.isEmpty()) {
+            response.setData(repository.createAll(newStatus).get(0));
+            //NOTE: The referenced messung status field is updated by a
+            // DB trigger
+            return authorization.filter(response, StatusProt.class);
+        }
+        return response;
+    }
+
+    /**
+     * Create StatusProt objects for multiple Measm objects.
+     *
+     * Data needed to check and validate the status changes is loaded
+     * with a few queries for all Measm objects and the new StatusProt
+     * objects are inserted together. Each Measm object may occur only
+     * once.
+     *
+     * @param statuses The new StatusProt objects, e.g. with the same
+     * statusMpId for each Measm object to be changed.
+     * @return Response with list of Response objects for each StatusProt,
+     * in order of the given objects.
+     */
+    @POST
+    @Path("bulk")
+    public Response createAll(
+        List<StatusProt> statuses
+    ) {
+        Set<Integer> measmIds = new HashSet<>();
+        for (StatusProt status: statuses) {
+            if (status.getMeasmId() != null) {
+                measmIds.add(status.getMeasmId());
+            }
+        }
+        StatusData data = new StatusData(measmIds);
+
+        List<Response> responseList = new ArrayList<>();
+        List<StatusProt> newStatuses = new ArrayList<>();
+        // Indexes of the responses for newStatuses in responseList
+        List<Integer> newStatusResponses = new ArrayList<>();
+        Set<Integer> changed = new HashSet<>();
+        for (StatusProt status: statuses) {
+            if (status.getMeasmId() == null
+                || status.getMeasFacilId() == null
+            ) {
+                responseList.add(
+                    new Response(false, StatusCodes.VALUE_MISSING, status));
+                continue;
+            }
+            if (!changed.add(status.getMeasmId())) {
+                responseList.add(
+                    new Response(false, StatusCodes.VALUE_AMBIGOUS, status));
+                continue;
+            }
+            int pending = newStatuses.size();
+            Response response = changeStatus(status, data, newStatuses);
+            if (newStatuses.size() > pending) {
+                newStatusResponses.add(responseList.size());
+            }
+            responseList.add(response);
+        }
+
+        //NOTE: The referenced messung status fields are updated by a
+        // DB trigger
+        List<StatusProt> created = repository.createAll(newStatuses);
+        for (int i = 0; i < created.size(); i++) {
+            int index = newStatusResponses.get(i);
+            Response response = responseList.get(index);
+            response.setData(created.get(i));
+            responseList.set(
+                index, authorization.filter(response, StatusProt.class));
+        }
+        return new Response(true, StatusCodes.OK, responseList);
+    }
+
+    /*
+     * Check whether the requested status change is allowed and valid.
+     *
+     * A status reset is persisted immediately. A new status to be set is
+     * added to newStatuses instead and has to be persisted by the caller,
+     * which should then replace the data of the returned response with
+     * the persisted object.
+     */
+    private Response changeStatus(
+        StatusProt status,
+        StatusData data,
+        List<StatusProt> newStatuses
+    ) {
         UserInfo userInfo = authorization.getInfo();
-        Measm messung = repository.getByIdPlain(
-            Measm.class, status.getMeasmId());
+        Measm messung = data.measms.get(status.getMeasmId());
+        if (messung == null) {
+            return new Response(false, StatusCodes.NOT_EXISTING, status);
+        }
         if (lock.isLocked(messung)) {
             return new Response(false, StatusCodes.CHANGED_VALUE, status);
         }
@@ -170,11 +344,12 @@ public class StatusProtService extends LadaService {
             status.setStatusMpId(1);
             return new Response(false, StatusCodes.OP_NOT_POSSIBLE, status);
         } else {
-            StatusProt oldStatus = repository.getByIdPlain(
-                StatusProt.class, messung.getStatus());
-            StatusMp newKombi =
-                repository.getByIdPlain(
-                    StatusMp.class, status.getStatusMpId());
+            StatusProt oldStatus = data.statusProts.get(messung.getStatus());
+            StatusMp newKombi = data.statusMps.get(status.getStatusMpId());
+            if (newKombi == null) {
+                return new Response(
+                    false, StatusCodes.VALUE_MISSING, status);
+            }
 
             // Check if the user is allowed to change to the requested
             // status_kombi
@@ -196,7 +371,8 @@ public class StatusProtService extends LadaService {
                         StatusProt.class);
                 } else {
                     // 2. user wants to set new status
-                    return setNewStatus(status, newKombi, messung);
+                    return setNewStatus(
+                        status, newKombi, messung, data, newStatuses);
                 }
             } else {
                 // Not allowed.
@@ -208,7 +384,9 @@ public class StatusProtService extends LadaService {
     private Response setNewStatus(
         StatusProt status,
         StatusMp newKombi,
-        Measm messung
+        Measm messung,
+        StatusData data,
+        List<StatusProt> newStatuses
     ) {
         Violation violation = new Violation();
         Violation violationCollection = new Violation();
@@ -217,8 +395,7 @@ public class StatusProtService extends LadaService {
             || newStatusWert == 2
             || newStatusWert == 7
         ) {
-            Sample probe = repository.getByIdPlain(
-                Sample.class, messung.getSampleId());
+            Sample probe = data.samples.get(messung.getSampleId());
             // init violation_collection with probe validation
             Violation probeViolation = probeValidator.validate(probe);
             violationCollection.addErrors(probeViolation.getErrors());
@@ -233,13 +410,7 @@ public class StatusProtService extends LadaService {
             violationCollection.addNotifications(violation.getNotifications());
 
             //validate messwert objects
-            QueryBuilder<MeasVal> builder =
-                repository.queryBuilder(MeasVal.class);
-            builder.and("measmId", messung.getId());
-            Response messwertQry =
-                repository.filter(builder.getQuery());
-            @SuppressWarnings("unchecked")
-            List<MeasVal> messwerte = (List<MeasVal>) messwertQry.getData();
+            List<MeasVal> messwerte = data.getMeasVals(messung.getId());
             boolean hasValidMesswerte = false;
             if (!messwerte.isEmpty()) {
             for (MeasVal messwert: messwerte) {
@@ -280,16 +451,13 @@ public class StatusProtService extends LadaService {
             }
 
             // validate orte
-            QueryBuilder<Geolocat> ortBuilder =
-                repository.queryBuilder(Geolocat.class);
-                ortBuilder.and("sampleId", probe.getId());
-            List<Geolocat> assignedOrte = repository.filterPlain(ortBuilder.getQuery());
-
-            for (Geolocat o : assignedOrte){
-                violation = ortValidator.validate(repository.getByIdPlain(Site.class, o.getSiteId()));
+            for (Geolocat o : data.getGeolocats(probe.getId())) {
+                violation = ortValidator.validate(
+                    data.getSite(o.getSiteId()));
                 violationCollection.addErrors(violation.getErrors());
                 violationCollection.addWarnings(violation.getWarnings());
-                violationCollection.addNotifications(violation.getNotifications());
+                violationCollection.addNotifications(
+                    violation.getNotifications());
             }
 
             // validate statusobject
@@ -324,14 +492,10 @@ public class StatusProtService extends LadaService {
         }
         //Set datum to null to use database timestamp
         status.setDate(null);
-        Response response = repository.create(status);
-        //NOTE: The referenced messung status field is updated by a DB trigger
-        if (violationCollection != null) {
-            response.setNotifications(violationCollection.getNotifications());
-        }
-        return authorization.filter(
-            response,
-            StatusProt.class);
+        newStatuses.add(status);
+        Response response = new Response(true, StatusCodes.OK, status);
+        response.setNotifications(violationCollection.getNotifications());
+        return response;
     }
 
     /**
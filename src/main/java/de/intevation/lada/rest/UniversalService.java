@@ -7,11 +7,20 @@
  */
 package de.intevation.lada.rest;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
@@ -30,6 +39,8 @@ import de.intevation.lada.model.master.MpgCateg;
 import de.intevation.lada.model.master.Sampler;
 import de.intevation.lada.model.master.Site;
 import de.intevation.lada.model.master.Tag;
+import de.intevation.lada.query.CountMode;
+import de.intevation.lada.query.QueryTemplateCache;
 import de.intevation.lada.query.QueryTools;
 import de.intevation.lada.util.annotation.AuthorizationConfig;
 import de.intevation.lada.util.auth.Authorization;
@@ -58,6 +69,12 @@ public class UniversalService extends LadaService {
     @Inject
     private Repository repository;
 
+    /**
+     * Cache of query configuration and prepared SQL.
+     */
+    @Inject
+    private QueryTemplateCache templateCache;
+
     /**
      * The header authorization module.
      */
@@ -65,6 +82,12 @@ public class UniversalService extends LadaService {
     @AuthorizationConfig(type = AuthorizationType.HEADER)
     private Authorization authorization;
 
+    /**
+     * Classes authorized by the Netzbetreiber ID of the respective object.
+     */
+    private static final Set<Class<?>> NETWORK_AUTHORIZED = Set.of(
+        Site.class, DatasetCreator.class, Sampler.class, MpgCateg.class);
+
     /**
      * Execute query, using the given result columns.
      *
@@ -78,18 +101,36 @@ public class UniversalService extends LadaService {
      *     sortIndex: [number],
      *     filterValue: [string],
      *     filterActive: [boolean],
-     *   }]
+     *   }],
+     *   after: {
+     *     [dataIndex]: [value]
+     *   }
      * }
      * </code>
      * </pre>
-     * @param start URL parameter used as offset for paging
+     * If "after" is given, the result starts with the entry following
+     * the given entry in sort order instead of using an offset (keyset
+     * pagination). It has to contain the values of all sort columns,
+     * e.g. by passing the last entry of the previous page. The sort
+     * columns should identify an entry uniquely, because entries
+     * having the same sort key as the given entry are skipped.
+     * @param start URL parameter used as offset for paging. If "after"
+     * is given, it is not used as offset, but only for calculating the
+     * total count if count is "none".
      * @param limit URL parameter used as limit for paging
+     * @param count URL parameter determining how the total count is
+     * calculated: "exact" (default) counts all entries, "estimate" uses
+     * the estimate of the database query planner and "none" skips counting.
+     * With "none", the total count only includes the entries up to the
+     * requested page and "hasMore" in the response indicates
+     * whether further entries exist.
      * @return JSON encoded query results
      */
     @POST
     public Response execute(
         @QueryParam("start") int start, // default for primitive type: 0
         @QueryParam("limit") Integer limit,
+        @QueryParam("count") @DefaultValue("exact") CountMode count,
         QueryColumns columns
     ) {
         List<GridColConf> gridColumnValues = columns.getColumns();
@@ -118,10 +159,8 @@ public class UniversalService extends LadaService {
         hierarchy.put("messungId",   Measm.class);
         int resultNdx = hierarchy.size();
         for (GridColConf columnValue : gridColumnValues) {
-            GridColMp gridColumn = repository.getByIdPlain(
-                GridColMp.class,
-                columnValue.getGridColMpId()
-            );
+            GridColMp gridColumn = templateCache.getGridColMp(
+                columnValue.getGridColMpId());
             //Check if column can be used for authorization
             Disp resultType = gridColumn.getDisp();
             if (resultType != null) {
@@ -144,68 +183,79 @@ public class UniversalService extends LadaService {
 
         try {
             QueryTools queryTools = new QueryTools(
-                repository, columns.getColumns());
+                repository, templateCache, columns.getColumns());
+            int offset = start;
+            if (columns.getAfter() != null) {
+                queryTools.seekAfter(columns.getAfter());
+                offset = 0;
+            }
+            // Without counting, fetch one more entry to see if there are more
+            boolean fetchNext = count == CountMode.NONE && limit != null;
             List<Map<String, Object>> result = queryTools.getResultForQuery(
-                start, limit);
+                offset, fetchNext ? Integer.valueOf(limit + 1) : limit);
 
             if (result == null) {
                 return new Response(true, StatusCodes.OK, null);
             }
 
-            // TODO: This issues a potentially costly 'SELECT count(*)'
-            // for every request. Better not to rely on total count at client side?
-            int size = queryTools.getTotalCountForQuery();
-            boolean doAuthorize = true;
-            if (result.size() > 500) {
-                doAuthorize = false;
+            Boolean hasMore = null;
+            int size;
+            switch (count) {
+            case ESTIMATE:
+                size = queryTools.getEstimatedCountForQuery();
+                break;
+            case NONE:
+                hasMore = fetchNext && result.size() > limit;
+                if (hasMore) {
+                    result = result.subList(0, limit);
+                }
+                size = start + result.size();
+                break;
+            default:
+                size = queryTools.getTotalCountForQuery();
             }
 
+            // Collect IDs to authorize
+            Set<Object> idsToAuthorize = new HashSet<>();
             for (Map<String, Object> row: result) {
-                Object idToAuthorize = row.get(authorizationColumnIndex);
-                boolean readonly;
-                if (doAuthorize) {
-                    if (idToAuthorize != null) {
-                        //If column is an ort, get Netzbetreiberid
-                        if (authorizationColumnType == Site.class) {
-                            Site ort = repository.getByIdPlain(
-                                Site.class, idToAuthorize);
-                            idToAuthorize = ort.getNetworkId();
-                        }
-                        if (authorizationColumnType == DatasetCreator.class) {
-                            DatasetCreator de = repository.getByIdPlain(
-                                DatasetCreator.class, idToAuthorize);
-                            idToAuthorize = de.getNetworkId();
-                        }
-                        if (authorizationColumnType == Sampler.class) {
-                            Sampler pn = repository.getByIdPlain(
-                                Sampler.class, idToAuthorize);
-                            idToAuthorize = pn.getNetworkId();
-                        }
-                        if (authorizationColumnType == MpgCateg.class) {
-                            MpgCateg mk = repository.getByIdPlain(
-                                MpgCateg.class, idToAuthorize);
-                            idToAuthorize = mk.getNetworkId();
-                        }
-                        if (authorizationColumnType == Tag.class) {
-                            Tag tag = repository.getByIdPlain(
-                                Tag.class, idToAuthorize);
-                            idToAuthorize = tag.getId();
-                        }
-
-                        readonly = !authorization.isAuthorizedById(
-                            idToAuthorize,
-                            RequestMethod.PUT,
-                            authorizationColumnType);
-                    } else {
-                        readonly = true;
-                    }
-                } else {
-                    readonly = true;
+                Object id = row.get(authorizationColumnIndex);
+                if (id != null) {
+                    idsToAuthorize.add(id);
+                }
+            }
+
+            // If column is e.g. an ort, authorize by Netzbetreiber ID
+            Map<Object, Object> authIds;
+            if (authorizationColumnType != null
+                && NETWORK_AUTHORIZED.contains(authorizationColumnType)
+            ) {
+                authIds = getNetworkIds(
+                    authorizationColumnType, idsToAuthorize);
+            } else {
+                authIds = new HashMap<>();
+                for (Object id: idsToAuthorize) {
+                    authIds.put(id, id);
                 }
+            }
+            Map<Object, Boolean> authorized = authorizationColumnType != null
+                ? authorization.isAuthorizedByIds(
+                    new HashSet<>(authIds.values()),
+                    RequestMethod.PUT,
+                    authorizationColumnType)
+                : Map.of();
+
+            for (Map<String, Object> row: result) {
+                Object authId = authIds.get(
+                    row.get(authorizationColumnIndex));
+                boolean readonly = authId == null
+                    || !authorized.getOrDefault(authId, false);
                 row.put("readonly", readonly);
             }
 
-            return new Response(true, StatusCodes.OK, result, size);
+            Response response =
+                new Response(true, StatusCodes.OK, result, size);
+            response.setHasMore(hasMore);
+            return response;
         } catch (IllegalArgumentException iae) {
             Response r = new Response(false, StatusCodes.SQL_INVALID_FILTER, null);
             MultivaluedMap<String, Integer> error =
@@ -215,4 +265,30 @@ public class UniversalService extends LadaService {
             return r;
         }
     }
+
+    /**
+     * Get the Netzbetreiber IDs of the objects with the given IDs.
+     *
+     * @param clazz The type of the objects, having a networkId attribute.
+     * @param ids The IDs of the objects.
+     * @return Map of object IDs to Netzbetreiber IDs.
+     */
+    private Map<Object, Object> getNetworkIds(
+        Class<?> clazz, Collection<Object> ids
+    ) {
+        Map<Object, Object> networkIds = new HashMap<>();
+        EntityManager em = repository.entityManager();
+        CriteriaBuilder builder = em.getCriteriaBuilder();
+        for (List<Object> chunk: Repository.partition(ids)) {
+            CriteriaQuery<Object[]> query =
+                builder.createQuery(Object[].class);
+            Root<?> root = query.from(clazz);
+            query.multiselect(root.get("id"), root.get("networkId"))
+                .where(root.get("id").in(chunk));
+            for (Object[] row: em.createQuery(query).getResultList()) {
+                networkIds.put(row[0], row[1]);
+            }
+        }
+        return networkIds;
+    }
 }
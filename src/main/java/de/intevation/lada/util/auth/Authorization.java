@@ -7,6 +7,9 @@
  */
 package de.intevation.lada.util.auth;
 
+import java.util.Collection;
+import java.util.Map;
+
 import de.intevation.lada.util.rest.RequestMethod;
 import de.intevation.lada.util.rest.Response;
 
@@ -31,6 +34,11 @@ public interface Authorization {
         RequestMethod method,
         Class<T> clazz);
 
+    <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        Class<T> clazz);
+
     boolean isProbeReadOnly(Integer probeId);
 
     boolean isMessungReadOnly(Integer messungId);
@@ -7,6 +7,9 @@
  */
 package de.intevation.lada.util.auth;
 
+import java.util.Collection;
+import java.util.Map;
+
 import de.intevation.lada.util.rest.RequestMethod;
 import de.intevation.lada.util.rest.Response;
 
@@ -24,6 +27,12 @@ public interface Authorizer {
         UserInfo userInfo,
         Class<T> clazz);
 
+    <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz);
+
     <T> Response filter(
         Response data,
         UserInfo userInfo,
@@ -7,15 +7,24 @@
  */
 package de.intevation.lada.util.auth;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.persistence.Query;
 
-import de.intevation.lada.model.lada.Measm;
 import de.intevation.lada.model.lada.Sample;
-import de.intevation.lada.model.lada.StatusProt;
-import de.intevation.lada.model.master.StatusMp;
-import de.intevation.lada.util.data.QueryBuilder;
+import de.intevation.lada.model.lada.SchemaName;
+import de.intevation.lada.model.master.MeasFacil;
 import de.intevation.lada.util.data.Repository;
-import de.intevation.lada.util.rest.Response;
+import de.intevation.lada.util.rest.RequestMethod;
 
 public abstract class BaseAuthorizer implements Authorizer {
 
@@ -28,6 +37,146 @@ public abstract class BaseAuthorizer implements Authorizer {
         this.repository = repository;
     }
 
+    /**
+     * Check whether a user is authorized to operate on the data
+     * identified by the given IDs.
+     *
+     * This default implementation checks every ID separately.
+     * Implementations should override it if the objects needed for
+     * authorization can be loaded with a set-based query.
+     *
+     * @param ids       The IDs to test.
+     * @param method    The Http request type.
+     * @param userInfo  The user information.
+     * @param clazz     The data object class.
+     * @return Map of the given IDs to the authorization result.
+     */
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        Map<Object, Boolean> result = new HashMap<>();
+        for (Object id: ids) {
+            if (!result.containsKey(id)) {
+                result.put(
+                    id, isAuthorizedById(id, method, userInfo, clazz));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check authorization for the objects with the given IDs, loading
+     * all objects with set-based queries.
+     *
+     * IDs of non-existing objects are mapped to false.
+     *
+     * @param <E>         The type of the objects to load.
+     * @param entityClass The type of the objects to load.
+     * @param idGetter    Function returning the ID of a loaded object.
+     * @param ids         The IDs to test.
+     * @param method      The Http request type.
+     * @param userInfo    The user information.
+     * @param clazz       The data object class passed to isAuthorized().
+     * @return Map of the given IDs to the authorization result.
+     */
+    protected <E, T> Map<Object, Boolean> authorizeLoaded(
+        Class<E> entityClass,
+        Function<E, Object> idGetter,
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        Map<Object, Boolean> result = new HashMap<>();
+        for (Object id: ids) {
+            result.put(id, false);
+        }
+        for (E object: repository.filterIn(
+                entityClass, "id", result.keySet())
+        ) {
+            result.put(
+                idGetter.apply(object),
+                isAuthorized(object, method, userInfo, clazz));
+        }
+        return result;
+    }
+
+    /**
+     * Load the probes with the given IDs.
+     *
+     * @param probeIds  The probe IDs.
+     * @return Map of the IDs to the probes found.
+     */
+    protected Map<Integer, Sample> getProbenByIds(
+        Collection<Integer> probeIds
+    ) {
+        Map<Integer, Sample> proben = new HashMap<>();
+        for (Sample probe: repository.filterIn(
+                Sample.class, "id", probeIds)
+        ) {
+            proben.put(probe.getId(), probe);
+        }
+        return proben;
+    }
+
+    /**
+     * Load the Messstellen of the given probes.
+     *
+     * @param proben    The probes.
+     * @return Map of the IDs to the Messstellen found.
+     */
+    protected Map<String, MeasFacil> getMessstellen(
+        Collection<Sample> proben
+    ) {
+        Set<String> mstIds = new HashSet<>();
+        for (Sample probe: proben) {
+            mstIds.add(probe.getMeasFacilId());
+        }
+        Map<String, MeasFacil> messstellen = new HashMap<>();
+        for (MeasFacil mst: repository.filterIn(
+                MeasFacil.class, "id", mstIds)
+        ) {
+            messstellen.put(mst.getId(), mst);
+        }
+        return messstellen;
+    }
+
+    /**
+     * Get the IDs referenced by the given objects by calling the getter
+     * with the given name.
+     *
+     * Objects providing no such getter are ignored.
+     *
+     * @param objects   The objects.
+     * @param clazz     The class of the objects.
+     * @param getter    Name of a getter returning an Integer ID.
+     * @return The referenced IDs.
+     */
+    protected Set<Integer> getReferencedIds(
+        Collection<?> objects,
+        Class<?> clazz,
+        String getter
+    ) {
+        Set<Integer> ids = new HashSet<>();
+        try {
+            Method m = clazz.getMethod(getter);
+            for (Object object: objects) {
+                if (object != null) {
+                    ids.add((Integer) m.invoke(object));
+                }
+            }
+        } catch (NoSuchMethodException | SecurityException
+            | IllegalAccessException | IllegalArgumentException
+            | InvocationTargetException e) {
+            return ids;
+        }
+        return ids;
+    }
+
     /**
      * Get the authorization of a single probe.
      *
@@ -46,43 +195,67 @@ public abstract class BaseAuthorizer implements Authorizer {
      * @return True if the probe is readonly.
      */
     public boolean isProbeReadOnly(Integer probeId) {
-        QueryBuilder<Measm> builder = repository.queryBuilder(Measm.class);
-        builder.and("sampleId", probeId);
-        Response response = repository.filter(builder.getQuery());
-        @SuppressWarnings("unchecked")
-        List<Measm> messungen = (List<Measm>) response.getData();
-        for (int i = 0; i < messungen.size(); i++) {
-            if (messungen.get(i).getStatus() == null) {
-                continue;
-            }
-            StatusProt status =
-                repository.getByIdPlain(
-                    StatusProt.class,
-                    messungen.get(i).getStatus()
-                );
-            StatusMp kombi = repository.getByIdPlain(
-                StatusMp.class, status.getStatusMpId());
-            if (kombi.getStatusVal().getId() != 0
-                && kombi.getStatusVal().getId() != 4
-            ) {
-                return true;
-            }
-        }
-        return false;
+        return !getReadOnlyProbeIds(Collections.singleton(probeId)).isEmpty();
     }
 
     public boolean isMessungReadOnly(Integer messungsId) {
-        Measm messung =
-            repository.getByIdPlain(Measm.class, messungsId);
-        if (messung.getStatus() == null) {
-            return false;
-        }
-        StatusProt status = repository.getByIdPlain(
-            StatusProt.class, messung.getStatus());
-        StatusMp kombi = repository.getByIdPlain(
-            StatusMp.class, status.getStatusMpId());
-        return (kombi.getStatusVal().getId() != 0
-                && kombi.getStatusVal().getId() != 4);
+        return !getReadOnlyMessungIds(
+            Collections.singleton(messungsId)).isEmpty();
     }
 
+    /**
+     * Determine which of the given probes are readonly,
+     * i.e. have at least one readonly Messung.
+     *
+     * @param probeIds  The probe IDs.
+     * @return The IDs of the readonly probes.
+     */
+    protected Set<Integer> getReadOnlyProbeIds(Collection<Integer> probeIds) {
+        return getReadOnlyIds("sample_id", probeIds);
+    }
+
+    /**
+     * Determine which of the given Messung objects are readonly,
+     * i.e. have a status value other than 0 and 4.
+     *
+     * @param messungIds  The Messung IDs.
+     * @return The IDs of the readonly Messung objects.
+     */
+    protected Set<Integer> getReadOnlyMessungIds(
+        Collection<Integer> messungIds
+    ) {
+        return getReadOnlyIds("id", messungIds);
+    }
+
+    /**
+     * Get the values of the given column of Messung objects having
+     * a status value other than 0 and 4, using one query per
+     * chunk of IDs.
+     *
+     * @param idColumn  Column of measm matched against the given IDs.
+     * @param ids       The IDs.
+     * @return The IDs having a readonly Messung.
+     */
+    private Set<Integer> getReadOnlyIds(
+        String idColumn,
+        Collection<Integer> ids
+    ) {
+        Set<Integer> result = new HashSet<>();
+        for (List<Integer> chunk: Repository.partition(ids)) {
+            Query query = repository.queryFromString(
+                "SELECT DISTINCT m." + idColumn
+                + " FROM " + SchemaName.NAME + ".measm m"
+                + " JOIN " + SchemaName.NAME + ".status_prot sp"
+                + " ON m.status = sp.id"
+                + " JOIN " + de.intevation.lada.model.master.SchemaName.NAME
+                + ".status_mp smp ON sp.status_mp_id = smp.id"
+                + " WHERE m." + idColumn + " IN (:ids)"
+                + " AND smp.status_val_id NOT IN (0, 4)")
+                .setParameter("ids", chunk);
+            for (Object id: query.getResultList()) {
+                result.add((Integer) id);
+            }
+        }
+        return result;
+    }
 }
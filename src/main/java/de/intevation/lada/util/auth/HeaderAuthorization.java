@@ -7,13 +7,12 @@
  */
 package de.intevation.lada.util.auth;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
-import javax.persistence.NoResultException;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.Context;
 
@@ -29,16 +28,13 @@ import de.intevation.lada.model.lada.Sample;
 import de.intevation.lada.model.lada.SampleSpecifMeasVal;
 import de.intevation.lada.model.lada.StatusProt;
 import de.intevation.lada.model.lada.TagLink;
-import de.intevation.lada.model.master.Auth;
 import de.intevation.lada.model.master.DatasetCreator;
-import de.intevation.lada.model.master.LadaUser;
 import de.intevation.lada.model.master.MpgCateg;
 import de.intevation.lada.model.master.MunicDiv;
 import de.intevation.lada.model.master.Sampler;
 import de.intevation.lada.model.master.Site;
 import de.intevation.lada.model.master.Tag;
 import de.intevation.lada.util.annotation.AuthorizationConfig;
-import de.intevation.lada.util.data.QueryBuilder;
 import de.intevation.lada.util.data.Repository;
 import de.intevation.lada.util.data.StatusCodes;
 import de.intevation.lada.util.rest.RequestMethod;
@@ -63,7 +59,8 @@ public class HeaderAuthorization implements Authorization {
     @Inject
     public HeaderAuthorization(
         @Context HttpServletRequest request,
-        Repository repository
+        Repository repository,
+        UserInfoCache userInfoCache
     ) {
         // The username
         String name = request.getAttribute("lada.user.name").toString();
@@ -71,24 +68,8 @@ public class HeaderAuthorization implements Authorization {
         // The user's roles
         String[] mst = request.getAttribute("lada.user.roles").toString()
             .replace("[", "").replace("]", "").replace(" ", "").split(",");
-        QueryBuilder<Auth> authBuilder = repository.queryBuilder(Auth.class);
-        authBuilder.andIn("ldapGr", Arrays.asList(mst));
-        List<Auth> auth = repository.filterPlain(authBuilder.getQuery());
-
-        // The user's ID
-        QueryBuilder<LadaUser> uIdBuilder =
-            repository.queryBuilder(LadaUser.class);
-        uIdBuilder.and("name", name);
-        LadaUser user;
-        try {
-            user = repository.getSinglePlain(uIdBuilder.getQuery());
-        } catch (NoResultException e) {
-            LadaUser newUser = new LadaUser();
-            newUser.setName(name);
-            user = (LadaUser) repository.create(newUser).getData();
-        }
 
-        this.userInfo = new UserInfo(name, user.getId(), auth);
+        this.userInfo = userInfoCache.getUserInfo(name, mst);
         initAuthorizers(repository);
     }
 
@@ -216,6 +197,33 @@ public class HeaderAuthorization implements Authorization {
         return authorizer.isAuthorizedById(id, method, userInfo, clazz);
     }
 
+    /**
+     * Check whether a user is authorized to operate on the data
+     * identified by the given IDs.
+     *
+     * @param ids       The IDs to test.
+     * @param method    The Http request type.
+     * @param clazz     The data object class.
+     * @return Map of the given IDs to the authorization result.
+     */
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        Class<T> clazz
+    ) {
+        Authorizer authorizer = authorizers.get(clazz);
+        // Do not authorize anything unknown
+        if (authorizer == null) {
+            Map<Object, Boolean> result = new HashMap<>();
+            for (Object id: ids) {
+                result.put(id, false);
+            }
+            return result;
+        }
+        return authorizer.isAuthorizedByIds(ids, method, userInfo, clazz);
+    }
+
     /**
      * Test whether a probe is readonly.
      *
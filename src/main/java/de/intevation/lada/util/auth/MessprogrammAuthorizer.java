@@ -8,7 +8,9 @@
 package de.intevation.lada.util.auth;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import de.intevation.lada.model.lada.Mpg;
 import de.intevation.lada.model.lada.MpgMmtMp;
@@ -73,6 +75,17 @@ public class MessprogrammAuthorizer extends BaseAuthorizer {
         return isAuthorized(mp, method, userInfo, Mpg.class);
     }
 
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        return authorizeLoaded(
+            Mpg.class, Mpg::getId, ids, method, userInfo, Mpg.class);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> Response filter(
@@ -8,7 +8,13 @@
 package de.intevation.lada.util.auth;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import de.intevation.lada.model.lada.Measm;
 import de.intevation.lada.model.lada.Sample;
@@ -71,6 +77,49 @@ public class MessungAuthorizer extends BaseAuthorizer {
     }
 
 
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        if (method != RequestMethod.PUT
+            && method != RequestMethod.DELETE
+        ) {
+            return authorizeLoaded(
+                Measm.class, Measm::getId, ids, method, userInfo, clazz);
+        }
+
+        Map<Object, Boolean> result = new HashMap<>();
+        for (Object id: ids) {
+            result.put(id, false);
+        }
+        List<Measm> messungen = repository.filterIn(
+            Measm.class, "id", result.keySet());
+        List<Integer> messungIds = new ArrayList<>();
+        Set<Integer> probeIds = new HashSet<>();
+        for (Measm messung: messungen) {
+            messungIds.add(messung.getId());
+            probeIds.add(messung.getSampleId());
+        }
+        Map<Integer, Sample> proben = new HashMap<>();
+        for (Sample probe: repository.filterIn(
+                Sample.class, "id", probeIds)
+        ) {
+            proben.put(probe.getId(), probe);
+        }
+        Set<Integer> readOnlyIds = getReadOnlyMessungIds(messungIds);
+        for (Measm messung: messungen) {
+            result.put(
+                messung.getId(),
+                !readOnlyIds.contains(messung.getId())
+                && getAuthorization(
+                    userInfo, proben.get(messung.getSampleId())));
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> Response filter(
@@ -80,34 +129,117 @@ public class MessungAuthorizer extends BaseAuthorizer {
     ) {
         if (data.getData() instanceof List<?>) {
             List<Measm> messungen = new ArrayList<Measm>();
+            AuthData authData =
+                new AuthData(userInfo, (List<Measm>) data.getData());
             for (Measm messung :(List<Measm>) data.getData()) {
-                messungen.add(setAuthData(userInfo, messung));
+                messungen.add(setAuthData(userInfo, messung, authData));
             }
             data.setData(messungen);
         } else if (data.getData() instanceof Measm) {
             Measm messung = (Measm) data.getData();
-            data.setData(setAuthData(userInfo, messung));
+            AuthData authData =
+                new AuthData(userInfo, Collections.singleton(messung));
+            data.setData(setAuthData(userInfo, messung, authData));
         }
         return data;
     }
 
+    /**
+     * Data needed to authorize a set of Measm objects, loaded with one
+     * query per class and chunk of IDs.
+     *
+     * Status data are only loaded if the user has a function allowing
+     * to edit status.
+     */
+    private class AuthData {
+        private final Map<Integer, Sample> proben;
+        private Map<String, MeasFacil> messstellen = Map.of();
+        private final Map<Integer, StatusProt> statusProts = new HashMap<>();
+        private final Map<Integer, StatusMp> statusMps = new HashMap<>();
+        private Set<Integer> readOnlyIds = Set.of();
+        private List<AuthCoordOfcEnvMediumMp> lsts;
+
+        AuthData(UserInfo userInfo, Collection<Measm> messungen) {
+            Set<Integer> probeIds = new HashSet<>();
+            for (Measm messung: messungen) {
+                probeIds.add(messung.getSampleId());
+            }
+            proben = getProbenByIds(probeIds);
+
+            if (!hasStatusFunction(userInfo)) {
+                return;
+            }
+            messstellen = getMessstellen(proben.values());
+
+            Set<Integer> messungIds = new HashSet<>();
+            Set<Integer> statusIds = new HashSet<>();
+            for (Measm messung: messungen) {
+                messungIds.add(messung.getId());
+                statusIds.add(messung.getStatus());
+            }
+            readOnlyIds = getReadOnlyMessungIds(messungIds);
+            Set<Integer> statusMpIds = new HashSet<>();
+            for (StatusProt status: repository.filterIn(
+                    StatusProt.class, "id", statusIds)
+            ) {
+                statusProts.put(status.getId(), status);
+                statusMpIds.add(status.getStatusMpId());
+            }
+            for (StatusMp kombi: repository.filterIn(
+                    StatusMp.class, "id", statusMpIds)
+            ) {
+                statusMps.put(kombi.getId(), kombi);
+            }
+        }
+
+        Sample getProbe(Measm messung) {
+            return proben.get(messung.getSampleId());
+        }
+
+        MeasFacil getMessstelle(Sample probe) {
+            return messstellen.get(probe.getMeasFacilId());
+        }
+
+        StatusMp getStatusMp(Measm messung) {
+            return statusMps.get(
+                statusProts.get(messung.getStatus()).getStatusMpId());
+        }
+
+        boolean isReadOnly(Measm messung) {
+            return readOnlyIds.contains(messung.getId());
+        }
+
+        List<AuthCoordOfcEnvMediumMp> getLsts(UserInfo userInfo) {
+            if (lsts == null) {
+                QueryBuilder<AuthCoordOfcEnvMediumMp> lstFilter =
+                    repository.queryBuilder(AuthCoordOfcEnvMediumMp.class);
+                lstFilter.or("mstId", userInfo.getMessstellen());
+                lsts = repository.filterPlain(lstFilter.getQuery());
+            }
+            return lsts;
+        }
+    }
+
+    private static boolean hasStatusFunction(UserInfo userInfo) {
+        return userInfo.getFunktionen().contains(1)
+            || userInfo.getFunktionen().contains(2)
+            || userInfo.getFunktionen().contains(3);
+    }
+
     /**
      * Authorize a single messung object.
      *
      * @param userInfo  The user information.
      * @param messung     The messung object.
+     * @param authData  Data loaded for authorizing the messung object.
      * @return The messung.
      */
     private Measm setAuthData(
         UserInfo userInfo,
-        Measm messung
+        Measm messung,
+        AuthData authData
     ) {
-        Sample probe =
-            (Sample) repository.getById(
-                Sample.class, messung.getSampleId()).getData();
-        MeasFacil mst =
-            repository.getByIdPlain(
-                MeasFacil.class, probe.getMeasFacilId());
+        Sample probe = authData.getProbe(messung);
 
         if (userInfo.belongsTo(probe.getMeasFacilId(), probe.getApprLabId())) {
             messung.setOwner(true);
@@ -122,23 +254,16 @@ public class MessungAuthorizer extends BaseAuthorizer {
         messung.setStatusEditLand(false);
         messung.setStatusEditLst(false);
 
-        if (!userInfo.getFunktionen().contains(1)
-            && !userInfo.getFunktionen().contains(2)
-            && !userInfo.getFunktionen().contains(3)
-        ) {
+        if (!hasStatusFunction(userInfo)) {
             return messung;
         }
 
-        StatusProt status = repository.getByIdPlain(
-            StatusProt.class,
-            messung.getStatus()
-        );
-        StatusMp kombi = repository.getByIdPlain(
-            StatusMp.class, status.getStatusMpId());
+        MeasFacil mst = authData.getMessstelle(probe);
+        StatusMp kombi = authData.getStatusMp(messung);
         int stufe = kombi.getStatusLev().getId();
         int wert  = kombi.getStatusVal().getId();
 
-        messung.setReadonly(wert != 0 && wert != 4);
+        messung.setReadonly(authData.isReadOnly(messung));
         if ((stufe == 1 && wert == 00) || wert == 4) {
             stufe = 0;
         }
@@ -173,11 +298,8 @@ public class MessungAuthorizer extends BaseAuthorizer {
                 || stufe == 2
                 || stufe == 3)
         ) {
-            QueryBuilder<AuthCoordOfcEnvMediumMp> lstFilter =
-                repository.queryBuilder(AuthCoordOfcEnvMediumMp.class);
-            lstFilter.or("mstId", userInfo.getMessstellen());
             List<AuthCoordOfcEnvMediumMp> lsts =
-                repository.filterPlain(lstFilter.getQuery());
+                authData.getLsts(userInfo);
             for (int i = 0; i < lsts.size(); i++) {
                 if (lsts.get(i).getEnvMediumId().equals(probe.getEnvMediumId())) {
                     messung.setStatusEditLst(true);
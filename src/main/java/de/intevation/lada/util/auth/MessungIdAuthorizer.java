@@ -10,7 +10,12 @@ package de.intevation.lada.util.auth;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import de.intevation.lada.model.lada.Measm;
 import de.intevation.lada.model.lada.Sample;
@@ -80,43 +85,69 @@ public class MessungIdAuthorizer extends BaseAuthorizer {
     ) {
         if (data.getData() instanceof List<?>) {
             List<Object> objects = new ArrayList<Object>();
+            AuthData authData = new AuthData(getReferencedIds(
+                    (List<Object>) data.getData(), clazz, "getMeasmId"));
             for (Object object :(List<Object>) data.getData()) {
-                objects.add(setAuthData(userInfo, object, clazz));
+                objects.add(setAuthData(userInfo, object, clazz, authData));
             }
             data.setData(objects);
         } else {
             Object object = data.getData();
-            data.setData(setAuthData(userInfo, object, clazz));
+            AuthData authData = new AuthData(getReferencedIds(
+                    Collections.singleton(object), clazz, "getMeasmId"));
+            data.setData(setAuthData(userInfo, object, clazz, authData));
         }
         return data;
     }
 
+    /**
+     * Data needed to authorize objects referencing a set of Messung
+     * objects, loaded with one query per class and chunk of IDs.
+     */
+    private class AuthData {
+        private final Map<Integer, Measm> messungen = new HashMap<>();
+        private final Map<Integer, Sample> proben;
+        private final Map<String, MeasFacil> messstellen;
+        private final Set<Integer> readOnlyIds;
+
+        AuthData(Set<Integer> messungIds) {
+            Set<Integer> probeIds = new HashSet<>();
+            for (Measm messung: repository.filterIn(
+                    Measm.class, "id", messungIds)
+            ) {
+                messungen.put(messung.getId(), messung);
+                probeIds.add(messung.getSampleId());
+            }
+            proben = getProbenByIds(probeIds);
+            messstellen = getMessstellen(proben.values());
+            readOnlyIds = getReadOnlyMessungIds(messungIds);
+        }
+    }
+
     /**
      * Authorize a single data object that has a messungsId Attribute.
      *
      * @param userInfo  The user information.
      * @param data      The Response object containing the data.
      * @param clazz     The data object class.
+     * @param authData  Data loaded for authorizing the data objects.
      * @return A Response object containing the data.
      */
     private <T> Object setAuthData(
         UserInfo userInfo,
         Object data,
-        Class<T> clazz
+        Class<T> clazz,
+        AuthData authData
     ) {
         try {
             Method getMessungsId = clazz.getMethod("getMeasmId");
             Integer id = (Integer) getMessungsId.invoke(data);
-            Measm messung = repository.getByIdPlain(
-                Measm.class, id);
-            Sample probe = repository.getByIdPlain(
-                Sample.class, messung.getSampleId());
+            Measm messung = authData.messungen.get(id);
+            Sample probe = authData.proben.get(messung.getSampleId());
 
             boolean readOnly = true;
             boolean owner = false;
-            MeasFacil mst =
-                repository.getByIdPlain(
-                    MeasFacil.class, probe.getMeasFacilId());
+            MeasFacil mst = authData.messstellen.get(probe.getMeasFacilId());
             if (!userInfo.getNetzbetreiber().contains(
                     mst.getNetworkId())) {
                 owner = false;
@@ -129,7 +160,7 @@ public class MessungIdAuthorizer extends BaseAuthorizer {
                 } else {
                     owner = false;
                 }
-                readOnly = this.isMessungReadOnly(messung.getId());
+                readOnly = authData.readOnlyIds.contains(messung.getId());
             }
 
             Method setOwner = clazz.getMethod("setOwner", boolean.class);
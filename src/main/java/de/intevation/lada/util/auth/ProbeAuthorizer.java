@@ -8,7 +8,12 @@
 package de.intevation.lada.util.auth;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import de.intevation.lada.model.lada.Sample;
 import de.intevation.lada.model.master.MeasFacil;
@@ -49,6 +54,32 @@ public class ProbeAuthorizer extends BaseAuthorizer {
         return isAuthorized(probe, method, userInfo, clazz);
     }
 
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        Map<Object, Boolean> result = new HashMap<>();
+        for (Object id: ids) {
+            result.put(id, false);
+        }
+        List<Sample> proben = repository.filterIn(
+            Sample.class, "id", result.keySet());
+        Set<Integer> readOnlyIds = method == RequestMethod.PUT
+            || method == RequestMethod.DELETE
+            ? getReadOnlyProbeIds(getIds(proben))
+            : Set.of();
+        for (Sample probe: proben) {
+            result.put(
+                probe.getId(),
+                !readOnlyIds.contains(probe.getId())
+                && getAuthorization(userInfo, probe));
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> Response filter(
@@ -58,13 +89,17 @@ public class ProbeAuthorizer extends BaseAuthorizer {
     ) {
         if (data.getData() instanceof List<?>) {
             List<Sample> proben = new ArrayList<Sample>();
+            Set<Integer> readOnlyIds = getReadOnlyProbeIds(
+                getIds((List<Sample>) data.getData()));
             for (Sample probe :(List<Sample>) data.getData()) {
-                proben.add(setAuthData(userInfo, probe));
+                proben.add(setAuthData(userInfo, probe, readOnlyIds));
             }
             data.setData(proben);
         } else if (data.getData() instanceof Sample) {
             Sample probe = (Sample) data.getData();
-            data.setData(setAuthData(userInfo, probe));
+            data.setData(setAuthData(
+                    userInfo, probe, getReadOnlyProbeIds(
+                        Collections.singleton(probe.getId()))));
         }
         return data;
     }
@@ -74,9 +109,14 @@ public class ProbeAuthorizer extends BaseAuthorizer {
      *
      * @param userInfo  The user information.
      * @param probe     The probe object.
+     * @param readOnlyIds The IDs of readonly probes.
      * @return The probe.
      */
-    private Sample setAuthData(UserInfo userInfo, Sample probe) {
+    private Sample setAuthData(
+        UserInfo userInfo,
+        Sample probe,
+        Set<Integer> readOnlyIds
+    ) {
         MeasFacil mst =
             repository.getByIdPlain(
                 MeasFacil.class, probe.getMeasFacilId());
@@ -90,7 +130,15 @@ public class ProbeAuthorizer extends BaseAuthorizer {
         } else {
             probe.setOwner(false);
         }
-        probe.setReadonly(this.isProbeReadOnly(probe.getId()));
+        probe.setReadonly(readOnlyIds.contains(probe.getId()));
         return probe;
     }
+
+    private List<Integer> getIds(List<Sample> proben) {
+        List<Integer> ids = new ArrayList<>();
+        for (Sample probe: proben) {
+            ids.add(probe.getId());
+        }
+        return ids;
+    }
 }
@@ -10,7 +10,13 @@ package de.intevation.lada.util.auth;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import de.intevation.lada.model.lada.Sample;
 import de.intevation.lada.model.master.MeasFacil;
@@ -61,6 +67,30 @@ public class ProbeIdAuthorizer extends BaseAuthorizer {
             && getAuthorization(userInfo, probe);
     }
 
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        Map<Object, Boolean> result = new HashMap<>();
+        for (Object id: ids) {
+            result.put(id, false);
+        }
+        List<Sample> proben = repository.filterIn(
+            Sample.class, "id", result.keySet());
+        Set<Integer> readOnlyIds = getReadOnlyProbeIds(
+            proben.stream().map(Sample::getId).collect(Collectors.toSet()));
+        for (Sample probe: proben) {
+            result.put(
+                probe.getId(),
+                !readOnlyIds.contains(probe.getId())
+                && getAuthorization(userInfo, probe));
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> Response filter(
@@ -70,28 +100,51 @@ public class ProbeIdAuthorizer extends BaseAuthorizer {
     ) {
         if (data.getData() instanceof List<?>) {
             List<Object> objects = new ArrayList<Object>();
+            AuthData authData = new AuthData(getReferencedIds(
+                    (List<Object>) data.getData(), clazz, "getSampleId"));
             for (Object object :(List<Object>) data.getData()) {
-                objects.add(setAuthData(userInfo, object, clazz));
+                objects.add(setAuthData(userInfo, object, clazz, authData));
             }
             data.setData(objects);
         } else {
             Object object = data.getData();
-            data.setData(setAuthData(userInfo, object, clazz));
+            AuthData authData = new AuthData(getReferencedIds(
+                    Collections.singleton(object), clazz, "getSampleId"));
+            data.setData(setAuthData(userInfo, object, clazz, authData));
         }
         return data;
     }
+
+    /**
+     * Data needed to authorize objects referencing a set of probes,
+     * loaded with one query per class and chunk of IDs.
+     */
+    private class AuthData {
+        private final Map<Integer, Sample> proben;
+        private final Map<String, MeasFacil> messstellen;
+        private final Set<Integer> readOnlyIds;
+
+        AuthData(Set<Integer> probeIds) {
+            proben = getProbenByIds(probeIds);
+            messstellen = getMessstellen(proben.values());
+            readOnlyIds = getReadOnlyProbeIds(probeIds);
+        }
+    }
+
     /**
      * Authorize a single data object that has a probeId Attribute.
      *
      * @param userInfo  The user information.
      * @param data      The Response object containing the data.
      * @param clazz     The data object class.
+     * @param authData  Data loaded for authorizing the data objects.
      * @return A Response object containing the data.
      */
     private <T> Object setAuthData(
         UserInfo userInfo,
         Object data,
-        Class<T> clazz
+        Class<T> clazz,
+        AuthData authData
     ) {
         if (data == null) {
             return null;
@@ -99,15 +152,11 @@ public class ProbeIdAuthorizer extends BaseAuthorizer {
         try {
             Method getProbeId = clazz.getMethod("getSampleId");
             Integer id = (Integer) getProbeId.invoke(data);
-            Sample probe =
-                (Sample) repository.getById(
-                    Sample.class, id).getData();
+            Sample probe = authData.proben.get(id);
 
             boolean readOnly = true;
             boolean owner = false;
-            MeasFacil mst =
-                repository.getByIdPlain(
-                    MeasFacil.class, probe.getMeasFacilId());
+            MeasFacil mst = authData.messstellen.get(probe.getMeasFacilId());
             if (!userInfo.getNetzbetreiber().contains(
                     mst.getNetworkId())) {
                 owner = false;
@@ -120,7 +169,7 @@ public class ProbeIdAuthorizer extends BaseAuthorizer {
                 } else {
                     owner = false;
                 }
-                readOnly = this.isProbeReadOnly(id);
+                readOnly = authData.readOnlyIds.contains(id);
             }
 
             Method setOwner = clazz.getMethod("setOwner", boolean.class);
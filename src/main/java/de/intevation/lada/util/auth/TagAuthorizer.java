@@ -9,7 +9,9 @@
 package de.intevation.lada.util.auth;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import de.intevation.lada.model.master.Tag;
 import de.intevation.lada.util.data.Repository;
@@ -66,6 +68,17 @@ public class TagAuthorizer extends BaseAuthorizer {
         return isAuthorized(tag, method, userInfo, clazz);
     }
 
+    @Override
+    public <T> Map<Object, Boolean> isAuthorizedByIds(
+        Collection<?> ids,
+        RequestMethod method,
+        UserInfo userInfo,
+        Class<T> clazz
+    ) {
+        return authorizeLoaded(
+            Tag.class, Tag::getId, ids, method, userInfo, clazz);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> Response filter(
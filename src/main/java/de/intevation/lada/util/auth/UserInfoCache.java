@@ -0,0 +1,175 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.auth;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.NoResultException;
+
+import org.jboss.logging.Logger;
+
+import de.intevation.lada.model.master.Auth;
+import de.intevation.lada.model.master.LadaUser;
+import de.intevation.lada.model.master.SchemaName;
+import de.intevation.lada.util.data.MasterDataChanged;
+import de.intevation.lada.util.data.QueryBuilder;
+import de.intevation.lada.util.data.Repository;
+
+/**
+ * Cache of UserInfo objects by user name and roles.
+ *
+ * Avoids looking up Auth and LadaUser for each request of a user.
+ * Entries expire after MAX_AGE, so that changes of users and their
+ * permissions in the database take effect without restart. The whole
+ * cache is cleared immediately on changes via JPA.
+ */
+@ApplicationScoped
+public class UserInfoCache {
+
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+
+    private final Logger logger = Logger.getLogger(UserInfoCache.class);
+
+    @Inject
+    private Repository repository;
+
+    private final Map<CacheKey, CacheEntry> entries =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Key identifying a user with a set of roles.
+     */
+    private static final class CacheKey {
+        private final String name;
+        private final Set<String> roles;
+
+        CacheKey(String name, String[] roles) {
+            this.name = name;
+            this.roles = new TreeSet<>(Arrays.asList(roles));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return name.equals(other.name) && roles.equals(other.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, roles);
+        }
+    }
+
+    /**
+     * Cached UserInfo with time of creation.
+     */
+    private static final class CacheEntry {
+        private final UserInfo userInfo;
+        private final long created = System.currentTimeMillis();
+
+        CacheEntry(UserInfo userInfo) {
+            this.userInfo = userInfo;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - created > MAX_AGE;
+        }
+    }
+
+    /**
+     * Get UserInfo for the given user name and roles.
+     *
+     * Creates a LadaUser for the given name if not existing.
+     *
+     * @param name The user name
+     * @param roles The LDAP groups of the user
+     * @return UserInfo for the given user
+     */
+    public UserInfo getUserInfo(String name, String[] roles) {
+        CacheKey key = new CacheKey(name, roles);
+        CacheEntry entry = entries.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return entry.userInfo;
+        }
+
+        QueryBuilder<Auth> authBuilder = repository.queryBuilder(Auth.class);
+        authBuilder.andIn("ldapGr", Arrays.asList(roles));
+        List<Auth> auth = List.copyOf(
+            repository.filterPlain(authBuilder.getQuery()));
+
+        LadaUser user = findUser(name);
+        if (user == null) {
+            // Concurrent requests of a new user might try to create it
+            // at the same time
+            repository.queryFromString(
+                "INSERT INTO " + SchemaName.NAME + ".lada_user (name) "
+                + "VALUES (:name) ON CONFLICT (name) DO NOTHING")
+                .setParameter("name", name)
+                .executeUpdate();
+            user = findUser(name);
+
+            // Do not cache the user before the transaction
+            // creating it is committed
+            return new UserInfo(name, user.getId(), auth);
+        }
+
+        UserInfo userInfo = new UserInfo(name, user.getId(), auth);
+        entries.put(key, new CacheEntry(userInfo));
+        return userInfo;
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Invalidate cache after successful transactions changing
+     * user master data.
+     *
+     * @param event The event
+     */
+    void onMasterDataChanged(
+        @Observes(during = TransactionPhase.AFTER_SUCCESS)
+        MasterDataChanged event
+    ) {
+        if (event.concerns(Auth.class, LadaUser.class)) {
+            logger.debug(String.format(
+                "%s changed: invalidate user info",
+                event.getEntityClass().getSimpleName()));
+            invalidate();
+        }
+    }
+
+    private LadaUser findUser(String name) {
+        QueryBuilder<LadaUser> uIdBuilder =
+            repository.queryBuilder(LadaUser.class);
+        uIdBuilder.and("name", name);
+        try {
+            return repository.getSinglePlain(uIdBuilder.getQuery());
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+}
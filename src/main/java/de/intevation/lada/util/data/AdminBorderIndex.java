@@ -0,0 +1,171 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.index.strtree.STRtree;
+
+/**
+ * In-memory spatial index of administrative borders.
+ *
+ * Holds the shapes of AdminBorderView as prepared geometries in an
+ * STRtree, so that point-in-polygon and distance checks do not require
+ * a database round trip each.
+ *
+ * The index is held in a MasterDataSnapshot. Borders are not maintained
+ * via JPA, so no entity changes are watched.
+ */
+@ApplicationScoped
+public class AdminBorderIndex {
+
+    private static final long MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
+    @Inject
+    private Repository repository;
+
+    private final MasterDataSnapshot<Index> index = new MasterDataSnapshot<>(
+        "admin border index", MAX_AGE, this::buildIndex);
+
+    /**
+     * Prepared shape of an administrative unit.
+     */
+    public static class Border {
+        private final String municId;
+        private final boolean isMunic;
+        private final PreparedGeometry shape;
+
+        Border(String municId, Boolean isMunic, MultiPolygon shape) {
+            this.municId = municId;
+            this.isMunic = Boolean.TRUE.equals(isMunic);
+            this.shape = PreparedGeometryFactory.prepare(shape);
+        }
+
+        /**
+         * @return ID of the administrative unit
+         */
+        public String getMunicId() {
+            return municId;
+        }
+
+        /**
+         * @return True if the administrative unit is a municipality
+         */
+        public boolean isMunic() {
+            return isMunic;
+        }
+
+        /**
+         * @param p The point
+         * @return True if the shape contains the given point
+         */
+        public boolean contains(Point p) {
+            return shape.contains(p);
+        }
+
+        /**
+         * @param p The point
+         * @return Distance between shape and point in degrees
+         */
+        public double distance(Point p) {
+            return shape.getGeometry().distance(p);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the borders.
+     */
+    private static final class Index {
+        private final STRtree tree = new STRtree();
+        private final Map<String, List<Border>> byMunicId = new HashMap<>();
+
+        Index(List<Object[]> borders) {
+            for (Object[] row: borders) {
+                MultiPolygon shape = (MultiPolygon) row[2];
+                if (shape == null) {
+                    continue;
+                }
+                Border border =
+                    new Border((String) row[0], (Boolean) row[1], shape);
+                tree.insert(shape.getEnvelopeInternal(), border);
+                byMunicId.computeIfAbsent(
+                    border.getMunicId(), k -> new ArrayList<>())
+                    .add(border);
+            }
+            // Build now, since building on first query is not thread-safe
+            tree.build();
+        }
+    }
+
+    /**
+     * Get borders of an administrative unit.
+     *
+     * @param municId ID of the administrative unit
+     * @return The borders, which might be empty
+     */
+    public List<Border> getBorders(String municId) {
+        return index.get().byMunicId.getOrDefault(municId, List.of());
+    }
+
+    /**
+     * Find the municipality containing a point.
+     *
+     * @param p The point
+     * @return ID of the municipality or null if not found
+     */
+    public String findMunicId(Point p) {
+        @SuppressWarnings("unchecked")
+        List<Border> candidates =
+            index.get().tree.query(p.getEnvelopeInternal());
+        Border found = null;
+        for (Border border: candidates) {
+            if (border.isMunic() && border.contains(p)
+                && (found == null
+                    || border.getMunicId().compareTo(found.getMunicId()) < 0)
+            ) {
+                found = border;
+            }
+        }
+        return found == null ? null : found.getMunicId();
+    }
+
+    /**
+     * Remove the index, which is rebuilt on next use.
+     */
+    public void invalidate() {
+        index.invalidate();
+    }
+
+    private Index buildIndex() {
+        return new Index(loadBorders());
+    }
+
+    /*
+     * The rows of AdminBorderView from different source tables share IDs,
+     * so they must not be loaded as entities, which would be merged by ID
+     * in the persistence context.
+     */
+    private List<Object[]> loadBorders() {
+        return repository.entityManager().createQuery(
+            "SELECT v.municId, v.isMunic, v.shape"
+            + " FROM AdminBorderView v"
+            + " ORDER BY v.municId, v.id", Object[].class)
+            .getResultList();
+    }
+}
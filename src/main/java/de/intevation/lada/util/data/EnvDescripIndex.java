@@ -0,0 +1,206 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import de.intevation.lada.model.master.EnvDescrip;
+import de.intevation.lada.model.master.EnvDescripEnvMediumMp;
+
+/**
+ * In-memory index of the EnvDescrip hierarchy and the mapping of
+ * descriptors to environmental media (EnvDescripEnvMediumMp).
+ *
+ * Allows to resolve descriptor strings without database access.
+ * Descriptors are looked up by parent, level and level value, mappings
+ * are matched against precomputed arrays of descriptor IDs per level.
+ * The index is held in a MasterDataSnapshot.
+ *
+ * Returned objects are shared and must not be modified.
+ */
+@ApplicationScoped
+public class EnvDescripIndex {
+
+    /**
+     * Number of levels of a descriptor.
+     */
+    public static final int LEVELS = 12;
+
+    /**
+     * Value of levels for which no descriptor is given, i.e. "00".
+     */
+    public static final int EMPTY = -1;
+
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    // Value of levels not set in a mapping
+    private static final int NONE = Integer.MIN_VALUE;
+
+    @Inject
+    private Repository repository;
+
+    private final MasterDataSnapshot<Index> index = new MasterDataSnapshot<>(
+        "descriptor index", MAX_AGE, this::buildIndex,
+        EnvDescrip.class, EnvDescripEnvMediumMp.class);
+
+    /**
+     * Immutable snapshot of the master data.
+     */
+    private static final class Index {
+        // Descriptors by parent, level and level value
+        private final Map<Long, EnvDescrip> children = new HashMap<>();
+        // Descriptors with lowest ID by level and level value
+        private final Map<Integer, EnvDescrip> byLevel = new HashMap<>();
+
+        private final List<EnvDescripEnvMediumMp> mappings;
+        private final int[][] mappingLevels;
+
+        Index(
+            List<EnvDescrip> descriptors,
+            List<EnvDescripEnvMediumMp> mappings
+        ) {
+            // Keep order of IDs for results as reproducible as possible
+            descriptors.sort(Comparator.comparing(EnvDescrip::getId));
+            for (EnvDescrip d: descriptors) {
+                if (d.getLev() == null || d.getLevVal() == null) {
+                    continue;
+                }
+                byLevel.putIfAbsent(
+                    levelKey(d.getLev(), d.getLevVal()), d);
+                if (d.getPredId() != null) {
+                    children.putIfAbsent(
+                        childKey(d.getPredId(), d.getLev(), d.getLevVal()),
+                        d);
+                }
+            }
+
+            mappings.sort(Comparator.comparing(EnvDescripEnvMediumMp::getId));
+            this.mappings = List.copyOf(mappings);
+            this.mappingLevels = new int[mappings.size()][];
+            for (int i = 0; i < mappings.size(); i++) {
+                EnvDescripEnvMediumMp m = mappings.get(i);
+                Integer[] levels = {
+                    m.getS00(), m.getS01(), m.getS02(), m.getS03(),
+                    m.getS04(), m.getS05(), m.getS06(), m.getS07(),
+                    m.getS08(), m.getS09(), m.getS10(), m.getS11()
+                };
+                mappingLevels[i] = new int[LEVELS];
+                for (int l = 0; l < LEVELS; l++) {
+                    mappingLevels[i][l] =
+                        levels[l] == null ? NONE : levels[l];
+                }
+            }
+        }
+    }
+
+    /**
+     * Get descriptor by parent, level and level value.
+     *
+     * @param predId ID of the parent descriptor or null for any parent
+     * @param lev The level
+     * @param levVal The level value, e.g. "02"
+     * @return The descriptor or null if not existing
+     */
+    public EnvDescrip getDescriptor(Integer predId, int lev, String levVal) {
+        int value;
+        try {
+            value = Integer.parseInt(levVal);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Index current = index.get();
+        return predId == null
+            ? current.byLevel.get(levelKey(lev, value))
+            : current.children.get(childKey(predId, lev, value));
+    }
+
+    /**
+     * Find mappings of descriptors to environmental media.
+     *
+     * For each level, the given value determines which mappings match:
+     * null matches any mapping, EMPTY matches mappings without descriptor
+     * on this level and a descriptor ID matches mappings with this or
+     * without descriptor on this level.
+     *
+     * @param levels Values per level, at most LEVELS
+     * @return Matching mappings in order of their IDs
+     */
+    public List<EnvDescripEnvMediumMp> findMappings(Integer[] levels) {
+        Index current = index.get();
+        List<EnvDescripEnvMediumMp> result = new ArrayList<>();
+        for (int i = 0; i < current.mappingLevels.length; i++) {
+            if (matches(current.mappingLevels[i], levels)) {
+                result.add(current.mappings.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the index, which is rebuilt on next use.
+     */
+    public void invalidate() {
+        index.invalidate();
+    }
+
+    /**
+     * Invalidate index after successful transactions changing
+     * descriptor master data.
+     *
+     * @param event The event
+     */
+    void onMasterDataChanged(
+        @Observes(during = TransactionPhase.AFTER_SUCCESS)
+        MasterDataChanged event
+    ) {
+        index.onMasterDataChanged(event);
+    }
+
+    private static boolean matches(int[] mapping, Integer[] levels) {
+        for (int l = 0; l < levels.length; l++) {
+            Integer value = levels[l];
+            if (value == null) {
+                continue;
+            }
+            if (value == EMPTY) {
+                if (mapping[l] != NONE) {
+                    return false;
+                }
+            } else if (mapping[l] != NONE && mapping[l] != value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int levelKey(int lev, int levVal) {
+        return (lev << Short.SIZE) | (levVal & 0xFFFF);
+    }
+
+    private static long childKey(int predId, int lev, int levVal) {
+        return ((long) predId << Integer.SIZE)
+            | (levelKey(lev, levVal) & 0xFFFFFFFFL);
+    }
+
+    private Index buildIndex() {
+        return new Index(
+            new ArrayList<>(repository.getAllPlain(EnvDescrip.class)),
+            new ArrayList<>(
+                repository.getAllPlain(EnvDescripEnvMediumMp.class)));
+    }
+}
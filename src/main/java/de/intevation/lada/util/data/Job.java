@@ -128,9 +128,21 @@ public abstract class Job implements Runnable {
      */
     @Override
     public void run() {
+        runInNewTx(this::runWithTx);
+    }
+
+    /**
+     * Run the given task in a new transaction, which is committed
+     * afterwards.
+     *
+     * Can be used by jobs to run parts of their work in other threads.
+     *
+     * @param task The task
+     */
+    protected void runInNewTx(Runnable task) {
         try {
             this.tx.begin();
-            this.runWithTx();
+            task.run();
         } catch (NotSupportedException | SystemException e) {
             throw new RuntimeException(e.getMessage());
         } finally {
@@ -148,6 +160,29 @@ public abstract class Job implements Runnable {
         }
     }
 
+    /**
+     * Commit the current transaction and begin a new one.
+     *
+     * Allows jobs processing large amounts of data to persist their work
+     * in chunks. The persistence context is cleared, i.e. previously
+     * loaded objects are detached afterwards.
+     */
+    protected void commitAndBeginTx() {
+        repository.entityManager().flush();
+        repository.entityManager().clear();
+        try {
+            this.tx.commit();
+            this.tx.begin();
+        } catch (NotSupportedException
+            | SystemException
+            | RollbackException
+            | HeuristicMixedException
+            | HeuristicRollbackException e
+        ) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Set user info.
      * @param userInfo New userInfo
@@ -176,6 +211,8 @@ public abstract class Job implements Runnable {
         private boolean notifications;
         private boolean warnings;
         private boolean errors;
+        private volatile int itemsDone;
+        private volatile int itemsTotal;
 
         private static class StatusSerializer
             implements JsonbSerializer<Status> {
@@ -243,5 +280,29 @@ public abstract class Job implements Runnable {
         public void setStatus(Status status) {
             this.status = status;
         }
+
+        /**
+         * @return Number of items processed so far, e.g. imported samples
+         */
+        public int getItemsDone() {
+            return itemsDone;
+        }
+
+        /**
+         * @return Number of items known to be processed, or 0 if unknown
+         */
+        public int getItemsTotal() {
+            return itemsTotal;
+        }
+
+        /**
+         * Set progress of the job.
+         * @param done Number of items processed so far
+         * @param total Number of items known to be processed
+         */
+        public void setProgress(int done, int total) {
+            this.itemsTotal = total;
+            this.itemsDone = done;
+        }
     }
 }
@@ -10,6 +10,8 @@ package de.intevation.lada.util.data;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -93,6 +95,48 @@ public class KdaUtil {
      */
     private static final double MAX_LON = 180, MAX_LAT = 90;
 
+    /*
+     * Registry of decoded CRS and math transforms between them.
+     * Decoding and finding transformations involves costly EPSG
+     * database lookups.
+     */
+    private static final Map<String, CoordinateReferenceSystem> CRS_CACHE =
+        new ConcurrentHashMap<>();
+    private static final Map<CrsPair, MathTransform> TRANSFORM_CACHE =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Pair of source and target CRS, compared by identity, since
+     * CRS instances are shared via CRS_CACHE.
+     */
+    private static final class CrsPair {
+        private final CoordinateReferenceSystem src;
+        private final CoordinateReferenceSystem target;
+
+        CrsPair(
+            CoordinateReferenceSystem src,
+            CoordinateReferenceSystem target
+        ) {
+            this.src = src;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CrsPair)) {
+                return false;
+            }
+            CrsPair other = (CrsPair) o;
+            return src == other.src && target == other.target;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(src)
+                + System.identityHashCode(target);
+        }
+    }
+
     /**
      * Representation of transformation result.
      */
@@ -158,6 +202,42 @@ public class KdaUtil {
         return t.transform(kdaTo);
     }
 
+    /**
+     * Get CRS for given code from registry, decoding it if not yet
+     * registered.
+     */
+    private static CoordinateReferenceSystem decode(
+        String code
+    ) throws FactoryException {
+        CoordinateReferenceSystem crs = CRS_CACHE.get(code);
+        if (crs == null) {
+            crs = CRS.decode(code);
+            CoordinateReferenceSystem registered =
+                CRS_CACHE.putIfAbsent(code, crs);
+            if (registered != null) {
+                crs = registered;
+            }
+        }
+        return crs;
+    }
+
+    /**
+     * Get math transform between given CRS from registry, finding it if
+     * not yet registered.
+     */
+    private static MathTransform findMathTransform(
+        CoordinateReferenceSystem src,
+        CoordinateReferenceSystem target
+    ) throws FactoryException {
+        CrsPair key = new CrsPair(src, target);
+        MathTransform transform = TRANSFORM_CACHE.get(key);
+        if (transform == null) {
+            transform = CRS.findMathTransform(src, target);
+            TRANSFORM_CACHE.putIfAbsent(key, transform);
+        }
+        return transform;
+    }
+
     /**
      * Defines the methods to be implemented for coordinate transformation.
      */
@@ -938,7 +1018,7 @@ public class KdaUtil {
     ) {
         CoordinateReferenceSystem src;
         try {
-            src = CRS.decode(epsgFrom);
+            src = decode(epsgFrom);
         } catch (FactoryException fe) {
             return null;
         }
@@ -956,9 +1036,9 @@ public class KdaUtil {
         String y
     ) {
         try {
-            CoordinateReferenceSystem target = CRS.decode(epsgTo);
+            CoordinateReferenceSystem target = decode(epsgTo);
 
-            MathTransform transform = CRS.findMathTransform(src, target);
+            MathTransform transform = findMathTransform(src, target);
             Coordinate srcCoord = new Coordinate();
             srcCoord.y = Double.valueOf(y);
             srcCoord.x = Double.valueOf(x);
@@ -1121,7 +1201,7 @@ public class KdaUtil {
         String zone = part.length() == 7
             ? ("0" + part.substring(0, 1))
             : part.substring(0, 2);
-        return CRS.decode(epsg + zone);
+        return decode(epsg + zone);
     }
 
     private String getEpsgForWgsUtmFromDegree(String x) {
@@ -1171,7 +1251,7 @@ public class KdaUtil {
             default: throw new FactoryException();
         }
 
-        return CRS.decode("EPSG:3146" + epsgSuffix);
+        return decode("EPSG:3146" + epsgSuffix);
     }
 
     private CoordinateReferenceSystem getCRSForEd50Utm(
@@ -1181,7 +1261,7 @@ public class KdaUtil {
         String part = x.split(",")[0];
         String zone = part.length() == 7 ? ("0" + part.substring(0, 1))
             : part.substring(0, 2);
-        return CRS.decode(epsg + zone);
+        return decode(epsg + zone);
     }
 
     private String getEpsgForEd50UtmFromDegree(String x) {
@@ -1222,7 +1302,7 @@ public class KdaUtil {
         String part = x.split("\\.")[0];
         String zone = part.length() == 7 ? ("0" + part.substring(0, 1))
             : part.substring(0, 2);
-        return CRS.decode(EPSG_UTM_ETRS89_PREFIX + zone);
+        return decode(EPSG_UTM_ETRS89_PREFIX + zone);
     }
 
     /*
@@ -0,0 +1,49 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+/**
+ * CDI event fired if an entity observed by MasterDataListener
+ * has been created, updated or removed.
+ *
+ * Application scoped caches of master data can observe this event
+ * in order to invalidate their content, preferably with
+ * TransactionPhase.AFTER_SUCCESS.
+ */
+public class MasterDataChanged {
+
+    private final Class<?> entityClass;
+
+    /**
+     * @param entityClass The class of the changed entity
+     */
+    public MasterDataChanged(Class<?> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * @return The class of the changed entity
+     */
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * @param classes Entity classes to check
+     * @return True if the changed entity is an instance of one of the
+     * given classes
+     */
+    public boolean concerns(Class<?>... classes) {
+        for (Class<?> clazz: classes) {
+            if (clazz.isAssignableFrom(entityClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener firing a MasterDataChanged event for each change
+ * of an entity it is registered for using
+ * {@code @EntityListeners(MasterDataListener.class)}.
+ *
+ * Note that changes applied directly in the database are not observed.
+ */
+public class MasterDataListener {
+
+    @Inject
+    private Event<MasterDataChanged> masterDataChanged;
+
+    /**
+     * Fire MasterDataChanged for the given entity.
+     * @param entity The created, updated or removed entity
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void entityChanged(Object entity) {
+        masterDataChanged.fire(new MasterDataChanged(entity.getClass()));
+    }
+}
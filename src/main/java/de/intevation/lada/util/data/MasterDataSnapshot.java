@@ -0,0 +1,145 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Holder of an immutable snapshot derived from master data, e.g. an
+ * in-memory index.
+ *
+ * The snapshot is built on first use and rebuilt on use after it is
+ * older than a maximum age or has been invalidated. It is invalidated
+ * by onMasterDataChanged() for changes of the watched entity classes,
+ * which only covers changes via JPA of entities registered with
+ * MasterDataListener. Master data is usually maintained directly in the
+ * database, though, so such changes become visible only after the
+ * maximum age.
+ *
+ * Consequently, master data may be used up to the maximum age of the
+ * snapshot after being changed in the database:
+ * - AdminBorderIndex (validation and import of sites): one hour
+ * - EnvDescripIndex (validation and import of environmental descriptors
+ *   and media): 10 minutes
+ * - UnitConversionIndex (normalization of measured values): 10 minutes
+ *
+ * Instances are thread-safe. Concurrent calls of get() build the snapshot
+ * only once.
+ *
+ * @param <T> Type of the snapshot, which must not be modified after
+ * being built
+ */
+public class MasterDataSnapshot<T> {
+
+    private final Logger logger = Logger.getLogger(MasterDataSnapshot.class);
+
+    private final String name;
+
+    private final long maxAge;
+
+    private final Supplier<T> builder;
+
+    private final Class<?>[] watched;
+
+    // Incremented on invalidation to discard snapshots built meanwhile
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile Entry<T> current;
+
+    /**
+     * Snapshot with time of creation.
+     */
+    private static final class Entry<T> {
+        private final T value;
+        private final long created = System.currentTimeMillis();
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param name Name of the snapshot used for logging
+     * @param maxAge Maximum age of the snapshot in milliseconds
+     * @param builder Builds the snapshot from the database
+     * @param watched Entity classes invalidating the snapshot if changed
+     */
+    public MasterDataSnapshot(
+        String name,
+        long maxAge,
+        Supplier<T> builder,
+        Class<?>... watched
+    ) {
+        this.name = name;
+        this.maxAge = maxAge;
+        this.builder = builder;
+        this.watched = watched;
+    }
+
+    /**
+     * Get the current snapshot, building it if necessary.
+     *
+     * @return The snapshot
+     */
+    public T get() {
+        Entry<T> entry = current;
+        if (entry == null || isExpired(entry)) {
+            entry = build();
+        }
+        return entry.value;
+    }
+
+    /**
+     * Remove the snapshot, which is rebuilt on next use.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        current = null;
+    }
+
+    /**
+     * Invalidate the snapshot if the event concerns a watched entity class.
+     *
+     * To be called from an observer of MasterDataChanged, preferably
+     * with TransactionPhase.AFTER_SUCCESS.
+     *
+     * @param event The event
+     */
+    public void onMasterDataChanged(MasterDataChanged event) {
+        if (event.concerns(watched)) {
+            logger.debug(String.format(
+                "%s changed: invalidate %s",
+                event.getEntityClass().getSimpleName(), name));
+            invalidate();
+        }
+    }
+
+    private boolean isExpired(Entry<T> entry) {
+        return System.currentTimeMillis() - entry.created > maxAge;
+    }
+
+    private synchronized Entry<T> build() {
+        // Might have been built by another thread meanwhile
+        Entry<T> entry = current;
+        if (entry == null || isExpired(entry)) {
+            int buildGeneration = generation.get();
+            long start = System.currentTimeMillis();
+            entry = new Entry<>(builder.get());
+            if (generation.get() == buildGeneration) {
+                current = entry;
+            }
+            logger.debug(String.format(
+                "Built %s in %d ms",
+                name, System.currentTimeMillis() - start));
+        }
+        return entry;
+    }
+}
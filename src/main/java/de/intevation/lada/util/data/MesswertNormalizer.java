@@ -12,34 +12,15 @@ import java.util.List;
 import javax.inject.Inject;
 
 import de.intevation.lada.model.lada.MeasVal;
-import de.intevation.lada.model.master.EnvMedium;
-import de.intevation.lada.model.master.UnitConvers;
 
 
 public class MesswertNormalizer {
 
-    private final Repository repository;
+    private final UnitConversionIndex conversions;
 
     @Inject
-    private MesswertNormalizer(Repository repository) {
-        this.repository = repository;
-    }
-
-    /**
-     * Get the list of conversion for the given meh ids.
-     * @param mehIdTo MehId to convert to
-     * @param mehIdFrom MehId to convert from
-     * @return Conversions as list
-     */
-    private List<UnitConvers> getConversions(
-        Integer mehIdTo,
-        Integer mehIdFrom
-    ) {
-        QueryBuilder<UnitConvers> builder =
-            repository.queryBuilder(UnitConvers.class);
-        builder.and("toUnitId", mehIdTo);
-        builder.and("fromUnit", mehIdFrom);
-        return repository.filterPlain(builder.getQuery());
+    private MesswertNormalizer(UnitConversionIndex conversions) {
+        this.conversions = conversions;
     }
 
     /**
@@ -56,10 +37,12 @@ public class MesswertNormalizer {
         if (umwId == null || umwId.equals("")) {
             return messwerte;
         }
-        EnvMedium umwelt =
-            repository.getByIdPlain(EnvMedium.class, umwId);
-        Integer mehIdToConvertTo = umwelt.getUnit1();
-        Integer secMehIdToConvertTo = umwelt.getUnit2();
+        List<Integer> units = conversions.getUnits(umwId);
+        if (units == null) {
+            return messwerte;
+        }
+        Integer mehIdToConvertTo = units.get(0);
+        Integer secMehIdToConvertTo = units.get(1);
 
         for (MeasVal messwert: messwerte) {
             if (mehIdToConvertTo != null
@@ -71,21 +54,21 @@ public class MesswertNormalizer {
                 continue;
             }
             //Get the conversion factors
-            List<UnitConvers> primaryMeu = getConversions(
-                    mehIdToConvertTo, messwert.getMeasUnitId());
-            List<UnitConvers> secondaryMeu = getConversions(
-                    secMehIdToConvertTo, messwert.getMeasUnitId());
-            if (primaryMeu.size() == 0 && secondaryMeu.size() == 0) {
+            Double primaryFactor = conversions.getFactor(
+                    messwert.getMeasUnitId(), mehIdToConvertTo);
+            Double secondaryFactor = conversions.getFactor(
+                    messwert.getMeasUnitId(), secMehIdToConvertTo);
+            if (primaryFactor == null && secondaryFactor == null) {
                 //No suitable conversion found: continue
                 continue;
             }
-            UnitConvers meu = primaryMeu.size() > 0
-                    ? primaryMeu.get(0) : secondaryMeu.get(0);
-            Double factor = meu.getFactor();
+            Double factor = primaryFactor != null
+                    ? primaryFactor : secondaryFactor;
 
             //Update einheit
             messwert.setMeasUnitId(
-                primaryMeu.size() > 0 ? mehIdToConvertTo : secMehIdToConvertTo);
+                primaryFactor != null
+                    ? mehIdToConvertTo : secMehIdToConvertTo);
             //Update messwert
             if (messwert.getMeasVal() != null) {
                 messwert.setMeasVal(messwert.getMeasVal() * factor);
@@ -7,7 +7,14 @@
  */
 package de.intevation.lada.util.data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -15,10 +22,13 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.metamodel.EntityType;
 import javax.transaction.Transactional;
 
+import org.hibernate.Hibernate;
 import org.jboss.logging.Logger;
 
 import de.intevation.lada.util.rest.Response;
@@ -42,6 +52,9 @@ import de.intevation.lada.util.rest.Response;
         NonUniqueResultException.class})
 public class Repository {
 
+    // Maximum number of values per IN clause
+    private static final int MAX_IN_VALUES = 1000;
+
     @Inject
     private Logger logger;
 
@@ -83,6 +96,95 @@ public class Repository {
         return new Response(true, StatusCodes.OK, managedObject);
     }
 
+    /**
+     * Create and persist new objects in the database.
+     *
+     * In contrast to create(), the persistence context is flushed only
+     * once for all objects, allowing JDBC batching where applicable.
+     * Instead of refreshing each object, the objects are loaded again
+     * with one query per entity class and MAX_IN_VALUES objects.
+     *
+     * @param <T> The type of the objects.
+     * @param objects The new objects, which are detached afterwards.
+     *
+     * @return The new objects as loaded from the database after INSERT,
+     *         in order of the given objects.
+     */
+    public <T> List<T> createAll(Collection<T> objects) {
+        for (T object: objects) {
+            em.persist(object);
+        }
+        em.flush();
+        return reload(new ArrayList<>(objects));
+    }
+
+    /**
+     * Update existing objects in the database.
+     *
+     * In contrast to update(), the persistence context is flushed only
+     * once for all objects, allowing JDBC batching. Instead of refreshing
+     * each object, the objects are loaded again with one query per entity
+     * class and MAX_IN_VALUES objects.
+     *
+     * @param <T> The type of the objects.
+     * @param objects The objects.
+     *
+     * @return The updated objects as loaded from the database after
+     *         UPDATE, in order of the given objects.
+     */
+    public <T> List<T> updateAll(Collection<T> objects) {
+        List<T> managedObjects = new ArrayList<>();
+        for (T object: objects) {
+            managedObjects.add(em.merge(object));
+        }
+        em.flush();
+        return reload(managedObjects);
+    }
+
+    /**
+     * Load flushed objects again from the database.
+     *
+     * Queries for managed objects do not overwrite their state, so the
+     * objects are detached first.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> reload(List<T> objects) {
+        PersistenceUnitUtil util =
+            em.getEntityManagerFactory().getPersistenceUnitUtil();
+        List<List<Object>> keys = new ArrayList<>();
+        Map<Class<?>, List<Object>> idsByClass = new LinkedHashMap<>();
+        for (T object: objects) {
+            Class<?> clazz = Hibernate.getClass(object);
+            Object id = util.getIdentifier(object);
+            keys.add(List.of(clazz, id));
+            idsByClass.computeIfAbsent(clazz, k -> new ArrayList<>())
+                .add(id);
+            em.detach(object);
+        }
+
+        Map<List<Object>, Object> loaded = new HashMap<>();
+        for (Map.Entry<Class<?>, List<Object>> entry
+            : idsByClass.entrySet()
+        ) {
+            Class<Object> clazz = (Class<Object>) entry.getKey();
+            EntityType<Object> type = em.getMetamodel().entity(clazz);
+            String idAttribute =
+                type.getId(type.getIdType().getJavaType()).getName();
+            for (Object object: filterIn(
+                    clazz, idAttribute, entry.getValue())
+            ) {
+                loaded.put(
+                    List.of(clazz, util.getIdentifier(object)), object);
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (List<Object> key: keys) {
+            result.add((T) loaded.get(key));
+        }
+        return result;
+    }
+
     /**
      * Delete an object from the database.
      *
@@ -183,6 +285,57 @@ public class Repository {
         return em.createQuery(filter).getResultList();
     }
 
+    /**
+     * Get objects from database having one of the given values
+     * of an attribute.
+     *
+     * One query is executed per MAX_IN_VALUES values.
+     *
+     * @param <T> The type of the objects.
+     * @param clazz The type of the objects.
+     * @param attribute Name of the attribute.
+     * @param values The values to match.
+     *
+     * @return List<T> with the requested objects.
+     */
+    public <T> List<T> filterIn(
+        Class<T> clazz,
+        String attribute,
+        Collection<?> values
+    ) {
+        List<T> result = new ArrayList<>();
+        for (List<?> chunk: partition(values)) {
+            QueryBuilder<T> builder = queryBuilder(clazz);
+            builder.andIn(attribute, chunk);
+            result.addAll(filterPlain(builder.getQuery()));
+        }
+        return result;
+    }
+
+    /**
+     * Split values to be matched by an IN clause into chunks of
+     * MAX_IN_VALUES values, each to be used in a separate query.
+     *
+     * Duplicates and null values are removed, since they do not
+     * change the result of an IN clause.
+     *
+     * @param <T> The type of the values.
+     * @param values The values.
+     *
+     * @return List of chunks of the values.
+     */
+    public static <T> List<List<T>> partition(Collection<T> values) {
+        Set<T> distinct = new LinkedHashSet<>(values);
+        distinct.remove(null);
+        List<T> valueList = new ArrayList<>(distinct);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < valueList.size(); i += MAX_IN_VALUES) {
+            chunks.add(valueList.subList(
+                i, Math.min(i + MAX_IN_VALUES, valueList.size())));
+        }
+        return chunks;
+    }
+
     /**
      * Get a single object from database using the given filter.
      *
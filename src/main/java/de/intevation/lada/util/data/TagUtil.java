@@ -13,6 +13,7 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -124,19 +125,21 @@ public class TagUtil {
             .getQuery());
 
         //Set tags
+        List<TagLink> zuordnungen = new ArrayList<>();
         probes.forEach(probe -> {
             TagLink zuordnung = new TagLink();
             zuordnung.setTagId(tagId);
             zuordnung.setSampleId(probe.getId());
-            repository.create(zuordnung);
+            zuordnungen.add(zuordnung);
         });
 
         messungs.forEach(messung -> {
             TagLink zuordnung = new TagLink();
             zuordnung.setTagId(tagId);
             zuordnung.setMeasmId(messung.getId());
-            repository.create(zuordnung);
+            zuordnungen.add(zuordnung);
         });
+        repository.createAll(zuordnungen);
     }
 
     /**
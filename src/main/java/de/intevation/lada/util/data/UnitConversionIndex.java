@@ -0,0 +1,130 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+
+import de.intevation.lada.model.master.EnvMedium;
+import de.intevation.lada.model.master.UnitConvers;
+
+/**
+ * In-memory index of unit conversion factors (UnitConvers) and of the
+ * units of environmental media (EnvMedium).
+ *
+ * Allows to normalize measured values without database access.
+ * The index is held in a MasterDataSnapshot.
+ */
+@ApplicationScoped
+public class UnitConversionIndex {
+
+    private static final long MAX_AGE = TimeUnit.MINUTES.toMillis(10);
+
+    @Inject
+    private Repository repository;
+
+    private final MasterDataSnapshot<Index> index = new MasterDataSnapshot<>(
+        "unit conversion index", MAX_AGE, this::buildIndex,
+        UnitConvers.class, EnvMedium.class);
+
+    /**
+     * Immutable snapshot of the master data.
+     */
+    private static final class Index {
+        // Factors by units to convert from and to
+        private final Map<Long, Double> factors = new HashMap<>();
+        // Primary and secondary unit by environmental medium
+        private final Map<String, List<Integer>> units = new HashMap<>();
+
+        Index(List<UnitConvers> conversions, List<EnvMedium> media) {
+            // Keep order of IDs for reproducible results
+            conversions.sort(Comparator.comparing(UnitConvers::getId));
+            for (UnitConvers c: conversions) {
+                if (c.getFromUnit() == null || c.getToUnitId() == null) {
+                    continue;
+                }
+                factors.putIfAbsent(
+                    key(c.getFromUnit().getId(), c.getToUnitId()),
+                    c.getFactor());
+            }
+            for (EnvMedium medium: media) {
+                units.put(
+                    medium.getId(),
+                    Collections.unmodifiableList(Arrays.asList(
+                        medium.getUnit1(), medium.getUnit2())));
+            }
+        }
+    }
+
+    /**
+     * Get factor to convert values between units.
+     *
+     * @param fromUnitId ID of the unit to convert from
+     * @param toUnitId ID of the unit to convert to
+     * @return The factor or null if no conversion exists
+     */
+    public Double getFactor(Integer fromUnitId, Integer toUnitId) {
+        if (fromUnitId == null || toUnitId == null) {
+            return null;
+        }
+        return index.get().factors.get(key(fromUnitId, toUnitId));
+    }
+
+    /**
+     * Get primary and secondary unit of an environmental medium.
+     *
+     * @param envMediumId ID of the environmental medium
+     * @return List with IDs of primary and secondary unit, which might
+     * be null, or null if the environmental medium does not exist
+     */
+    public List<Integer> getUnits(String envMediumId) {
+        return index.get().units.get(envMediumId);
+    }
+
+    /**
+     * Remove the index, which is rebuilt on next use.
+     */
+    public void invalidate() {
+        index.invalidate();
+    }
+
+    /**
+     * Invalidate index after successful transactions changing
+     * unit conversions or environmental media.
+     *
+     * @param event The event
+     */
+    void onMasterDataChanged(
+        @Observes(during = TransactionPhase.AFTER_SUCCESS)
+        MasterDataChanged event
+    ) {
+        index.onMasterDataChanged(event);
+    }
+
+    private static long key(int fromUnitId, int toUnitId) {
+        return ((long) fromUnitId << Integer.SIZE)
+            | (toUnitId & 0xFFFFFFFFL);
+    }
+
+    private Index buildIndex() {
+        return new Index(
+            new ArrayList<>(repository.getAllPlain(UnitConvers.class)),
+            new ArrayList<>(repository.getAllPlain(EnvMedium.class)));
+    }
+}
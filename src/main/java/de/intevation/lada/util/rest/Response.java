@@ -9,6 +9,7 @@ package de.intevation.lada.util.rest;
 
 import java.io.Serializable;
 
+import javax.json.bind.annotation.JsonbProperty;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
@@ -30,6 +31,7 @@ public class Response implements Serializable {
     private MultivaluedMap<String, Integer> warnings;
     private MultivaluedMap<String, Integer> notifications;
     private int totalCount;
+    private Boolean hasMore;
 
     /**
      * Constructor to create a basic Response object.
@@ -130,4 +132,20 @@ public class Response implements Serializable {
     public void setTotalCount(int totalCount) {
         this.totalCount = totalCount;
     }
+
+    /**
+     * @return Whether more data follow the data in this response,
+     * if determined without counting them. Otherwise null.
+     */
+    @JsonbProperty(nillable = false)
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    /**
+     * @param hasMore Whether more data follow the data in this response
+     */
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
 }
@@ -15,10 +15,8 @@ import javax.inject.Inject;
 import de.intevation.lada.model.lada.Mpg;
 import de.intevation.lada.model.master.EnvDescrip;
 import de.intevation.lada.model.master.EnvDescripEnvMediumMp;
-import de.intevation.lada.util.data.QueryBuilder;
-import de.intevation.lada.util.data.Repository;
+import de.intevation.lada.util.data.EnvDescripIndex;
 import de.intevation.lada.util.data.StatusCodes;
-import de.intevation.lada.util.rest.Response;
 import de.intevation.lada.validation.Violation;
 import de.intevation.lada.validation.annotation.ValidationRule;
 import de.intevation.lada.validation.rules.Rule;
@@ -33,7 +31,7 @@ import de.intevation.lada.validation.rules.Rule;
 public class DeskriptorToUmwelt implements Rule {
 
     @Inject
-    private Repository repository;
+    private EnvDescripIndex envDescripIndex;
 
     @Override
     public Violation execute(Object object) {
@@ -70,26 +68,17 @@ public class DeskriptorToUmwelt implements Rule {
             } else {
                 parent = ndParent;
             }
-            QueryBuilder<EnvDescrip> builder = repository.queryBuilder(
-                 EnvDescrip.class);
-            if (parent != null) {
-                builder.and("predId", parent);
-            }
-            builder.and("levVal", mediaDesk[i]);
-            builder.and("lev", i - 1);
-            Response response = repository.filter(
-                builder.getQuery());
-            @SuppressWarnings("unchecked")
-            List<EnvDescrip> data = (List<EnvDescrip>) response.getData();
-            if (data.isEmpty()) {
+            EnvDescrip data =
+                envDescripIndex.getDescriptor(parent, i - 1, mediaDesk[i]);
+            if (data == null) {
                 Violation violation = new Violation();
                 violation.addWarning("envDescripDisplay", StatusCodes.VAL_DESK);
                 return violation;
             }
-            hdParent = data.get(0).getId();
-            mediaIds.add(data.get(0).getId());
+            hdParent = data.getId();
+            mediaIds.add(data.getId());
             if (i == 2) {
-                ndParent = data.get(0).getId();
+                ndParent = data.getId();
             }
         }
         Violation violation =
@@ -103,9 +92,6 @@ public class DeskriptorToUmwelt implements Rule {
         boolean isZebs,
         int ndx
     ) {
-        QueryBuilder<EnvDescripEnvMediumMp> builder =
-            repository.queryBuilder(EnvDescripEnvMediumMp.class);
-
         if (media.size() == 0) {
             Violation violation = new Violation();
             violation.addWarning(
@@ -114,22 +100,13 @@ public class DeskriptorToUmwelt implements Rule {
         }
 
         int size = 1;
+        Integer[] levels = new Integer[size + 1];
         for (int i = size; i >= 0; i--) {
-            String field = "s" + (i > 9 ? i : "0" + i);
-            QueryBuilder<EnvDescripEnvMediumMp> tmp = builder.getEmptyBuilder();
-            if (media.get(i) != -1) {
-                tmp.and(field, media.get(i));
-                tmp.or(field, null);
-                builder.and(tmp);
-            } else {
-                builder.and(field, null);
-            }
+            levels[i] = media.get(i) != -1
+                ? media.get(i) : EnvDescripIndex.EMPTY;
         }
-        Response response =
-            repository.filter(builder.getQuery());
-        @SuppressWarnings("unchecked")
         List<EnvDescripEnvMediumMp> data =
-            (List<EnvDescripEnvMediumMp>) response.getData();
+            envDescripIndex.findMappings(levels);
         if (data.isEmpty()) {
             Violation violation = new Violation();
             violation.addWarning(
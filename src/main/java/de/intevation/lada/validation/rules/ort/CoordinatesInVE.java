@@ -14,10 +14,8 @@ import javax.inject.Inject;
 import org.jboss.logging.Logger;
 import org.locationtech.jts.geom.Point;
 
-import de.intevation.lada.model.master.AdminBorderView;
 import de.intevation.lada.model.master.Site;
-import de.intevation.lada.util.data.QueryBuilder;
-import de.intevation.lada.util.data.Repository;
+import de.intevation.lada.util.data.AdminBorderIndex;
 import de.intevation.lada.util.data.StatusCodes;
 import de.intevation.lada.validation.Violation;
 import de.intevation.lada.validation.annotation.ValidationRule;
@@ -36,7 +34,7 @@ public class CoordinatesInVE implements Rule {
     private Logger logger;
 
     @Inject
-    private Repository repository;
+    private AdminBorderIndex adminBorderIndex;
 
     @Override
     public Violation execute(Object object) {
@@ -46,11 +44,9 @@ public class CoordinatesInVE implements Rule {
             : ort.getAdminUnitId();
 
         if (gemId != null && ort.getGeom() != null) {
-            QueryBuilder<AdminBorderView> vg = repository
-                .queryBuilder(AdminBorderView.class)
-                .and("municId", gemId);
-            List<AdminBorderView> vgs = repository.filterPlain(vg.getQuery());
-            if (vgs == null || vgs.isEmpty()) {
+            List<AdminBorderIndex.Border> vgs =
+                adminBorderIndex.getBorders(gemId);
+            if (vgs.isEmpty()) {
                 Violation violation = new Violation();
                 violation.addWarning(
                     "municId", StatusCodes.GEO_COORD_UNCHECKED);
@@ -65,8 +61,8 @@ public class CoordinatesInVE implements Rule {
             }
             Boolean unscharf = ort.getIsFuzzy();
             Violation violation = new Violation();
-            for (AdminBorderView singlevg : vgs) {
-                if (singlevg.getShape().contains(p)) {
+            for (AdminBorderIndex.Border singlevg : vgs) {
+                if (singlevg.contains(p)) {
                     if (unscharf != null && !unscharf) {
                         return null;
                     } else {
@@ -74,7 +70,7 @@ public class CoordinatesInVE implements Rule {
                         return null;
                     }
                 } else {
-                    double dist = singlevg.getShape().distance(p);
+                    double dist = singlevg.distance(p);
                     dist = dist * (3.1415926 / 180) * 6378137;
                     if (dist < 1000) {
                         ort.setIsFuzzy(true);
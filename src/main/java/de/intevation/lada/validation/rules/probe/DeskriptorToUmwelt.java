@@ -15,10 +15,8 @@ import javax.inject.Inject;
 import de.intevation.lada.model.lada.Sample;
 import de.intevation.lada.model.master.EnvDescrip;
 import de.intevation.lada.model.master.EnvDescripEnvMediumMp;
-import de.intevation.lada.util.data.QueryBuilder;
-import de.intevation.lada.util.data.Repository;
+import de.intevation.lada.util.data.EnvDescripIndex;
 import de.intevation.lada.util.data.StatusCodes;
-import de.intevation.lada.util.rest.Response;
 import de.intevation.lada.validation.Violation;
 import de.intevation.lada.validation.annotation.ValidationRule;
 import de.intevation.lada.validation.rules.Rule;
@@ -33,7 +31,7 @@ import de.intevation.lada.validation.rules.Rule;
 public class DeskriptorToUmwelt implements Rule {
 
     @Inject
-    private Repository repository;
+    private EnvDescripIndex envDescripIndex;
 
     @Override
     public Violation execute(Object object) {
@@ -70,18 +68,9 @@ public class DeskriptorToUmwelt implements Rule {
             } else {
                 parent = ndParent;
             }
-            QueryBuilder<EnvDescrip> builder =
-                repository.queryBuilder(EnvDescrip.class);
-            if (parent != null) {
-                builder.and("predId", parent);
-            }
-            builder.and("levVal", mediaDesk[i]);
-            builder.and("lev", i - 1);
-            Response response =
-            repository.filter(builder.getQuery());
-            @SuppressWarnings("unchecked")
-            List<EnvDescrip> data = (List<EnvDescrip>) response.getData();
-            if (data.isEmpty()) {
+            EnvDescrip data =
+                envDescripIndex.getDescriptor(parent, i - 1, mediaDesk[i]);
+            if (data == null) {
                 String deskript = "";
                 deskript = "s" + Integer.toString(i - 1);
                 Violation violation = new Violation();
@@ -89,10 +78,10 @@ public class DeskriptorToUmwelt implements Rule {
                 violation.addWarning(deskript, StatusCodes.VALUE_NOT_MATCHING);
                 return violation;
             }
-            hdParent = data.get(0).getId();
-            mediaIds.add(data.get(0).getId());
+            hdParent = data.getId();
+            mediaIds.add(data.getId());
             if (i == 2) {
-                ndParent = data.get(0).getId();
+                ndParent = data.getId();
             }
         }
         Violation violation =
@@ -113,30 +102,21 @@ public class DeskriptorToUmwelt implements Rule {
             return violation;
         }
 
-        QueryBuilder<EnvDescripEnvMediumMp> builder =
-            repository.queryBuilder(EnvDescripEnvMediumMp.class);
-
+        Integer[] levels = new Integer[media.size()];
         for (int i = 0; i < media.size(); i++) {
-            String field = "s" + (i > 9 ? i : "0" + i);
-            QueryBuilder<EnvDescripEnvMediumMp> tmp = builder.getEmptyBuilder();
             if (media.get(i) != -1) {
-                tmp.and(field, media.get(i));
-                tmp.or(field, null);
-                builder.and(tmp);
+                levels[i] = media.get(i);
             } else {
                 if (datenbasisId != null
                     && datenbasisId != 4
                     && datenbasisId != 1
                 ) {
-                    builder.and(field, null);
+                    levels[i] = EnvDescripIndex.EMPTY;
                 }
             }
         }
-        Response response =
-        repository.filter(builder.getQuery());
-        @SuppressWarnings("unchecked")
         List<EnvDescripEnvMediumMp> data =
-            (List<EnvDescripEnvMediumMp>) response.getData();
+            envDescripIndex.findMappings(levels);
         if (data.isEmpty()) {
             Violation violation = new Violation();
             violation.addWarning(
@@ -564,6 +564,22 @@ public class ImporterTest extends BaseTest {
         testAsyncImportProbe(baseUrl, laf, lafSampleId, true);
     }
 
+    /**
+     * Test successful asynchronous import of a Sample object
+     * sent as request body.
+     */
+    @Test
+    @RunAsClient
+    public final void testAsyncFileImportProbeSuccess(
+        @ArquillianResource URL baseUrl
+    ) throws InterruptedException, CharacterCodingException {
+        final String lafSampleId = randomProbeId();
+        final String laf = String.format(
+            lafTemplate, lafSampleId,
+            regulation, sampleSpecifId, "", measd, measUnit);
+        testAsyncImportProbe(baseUrl, laf, lafSampleId, true, true);
+    }
+
     /**
      * Test import with lowercase LAF keywords.
      */
@@ -716,25 +732,49 @@ public class ImporterTest extends BaseTest {
         String lafData,
         String lafSampleId,
         boolean expectSuccess
+    ) throws InterruptedException, CharacterCodingException {
+        return testAsyncImportProbe(
+            baseUrl, lafData, lafSampleId, expectSuccess, false);
+    }
+
+    private JsonObject testAsyncImportProbe(
+        URL baseUrl,
+        String lafData,
+        String lafSampleId,
+        boolean expectSuccess,
+        boolean fileUpload
     ) throws InterruptedException, CharacterCodingException {
         final String asyncImportUrl = baseUrl + "data/import/async/";
         final String fileName = "test.laf";
 
         /* Request asynchronous import */
-        JsonObject requestJson = Json.createObjectBuilder()
-            .add("encoding", "utf-8")
-            .add("files", Json.createObjectBuilder()
-                .add(fileName, Base64.getEncoder().encodeToString(
-                        lafData.getBytes(StandardCharsets.UTF_8))))
-            .build();
-
-        Response importCreated = client.target(asyncImportUrl + "laf")
-            .request()
-            .header("X-SHIB-user", BaseTest.testUser)
-            .header("X-SHIB-roles", BaseTest.testRoles)
-            .header("X-LADA-MST", mstId)
-            .post(Entity.entity(requestJson.toString(),
-                    MediaType.APPLICATION_JSON));
+        Response importCreated;
+        if (fileUpload) {
+            importCreated = client.target(asyncImportUrl + "laf/file")
+                .queryParam("filename", fileName)
+                .request()
+                .header("X-SHIB-user", BaseTest.testUser)
+                .header("X-SHIB-roles", BaseTest.testRoles)
+                .header("X-LADA-MST", mstId)
+                .post(Entity.entity(
+                        lafData.getBytes(StandardCharsets.UTF_8),
+                        MediaType.TEXT_PLAIN_TYPE.withCharset("utf-8")));
+        } else {
+            JsonObject requestJson = Json.createObjectBuilder()
+                .add("encoding", "utf-8")
+                .add("files", Json.createObjectBuilder()
+                    .add(fileName, Base64.getEncoder().encodeToString(
+                            lafData.getBytes(StandardCharsets.UTF_8))))
+                .build();
+
+            importCreated = client.target(asyncImportUrl + "laf")
+                .request()
+                .header("X-SHIB-user", BaseTest.testUser)
+                .header("X-SHIB-roles", BaseTest.testRoles)
+                .header("X-LADA-MST", mstId)
+                .post(Entity.entity(requestJson.toString(),
+                        MediaType.APPLICATION_JSON));
+        }
         JsonObject importCreatedObject = parseSimpleResponse(importCreated);
 
         final String refIdKey = "refId";
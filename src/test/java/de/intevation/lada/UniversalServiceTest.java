@@ -10,6 +10,7 @@ package de.intevation.lada;
 import java.net.URL;
 
 import javax.json.Json;
+import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -43,6 +44,7 @@ public class UniversalServiceTest extends BaseTest {
     // Expected keys in JSON response
     private final String totalCountKey = "totalCount";
     private final String dataKey = "data";
+    private final String hasMoreKey = "hasMore";
     private final String hpNrKey = "hauptproben_nr";
 
     public UniversalServiceTest() {
@@ -151,6 +153,136 @@ public class UniversalServiceTest extends BaseTest {
             limit, responseJson.getJsonArray(dataKey).size());
     }
 
+    /**
+     * Test fetching data returned by a query using pages without counting.
+     *
+     * @param baseUrl The server url used for the request.
+     */
+    @Test
+    @RunAsClient
+    public final void testGetPagedWithoutCount(
+        @ArquillianResource URL baseUrl
+    ) {
+        final int limit = 1;
+        Response response = client.target(
+            baseUrl + "rest/universal?count=none&start=0&limit=" + limit)
+            .request()
+            .header("X-SHIB-user", BaseTest.testUser)
+            .header("X-SHIB-roles", BaseTest.testRoles)
+            .post(Entity.entity(this.requestJson.toString(),
+                    MediaType.APPLICATION_JSON));
+        JsonObject responseJson = parseResponse(response);
+
+        assertContains(responseJson, hasMoreKey);
+        Assert.assertTrue(responseJson.getBoolean(hasMoreKey));
+
+        assertContains(responseJson, totalCountKey);
+        Assert.assertEquals(
+            limit, responseJson.getInt(totalCountKey));
+
+        assertContains(responseJson, dataKey);
+        Assert.assertEquals(
+            limit, responseJson.getJsonArray(dataKey).size());
+    }
+
+    /**
+     * Test fetching data returned by a query using pages with estimated
+     * total count.
+     *
+     * @param baseUrl The server url used for the request.
+     */
+    @Test
+    @RunAsClient
+    public final void testGetPagedEstimatedCount(
+        @ArquillianResource URL baseUrl
+    ) {
+        final int limit = 1;
+        Response response = client.target(
+            baseUrl + "rest/universal?count=estimate&start=0&limit=" + limit)
+            .request()
+            .header("X-SHIB-user", BaseTest.testUser)
+            .header("X-SHIB-roles", BaseTest.testRoles)
+            .post(Entity.entity(this.requestJson.toString(),
+                    MediaType.APPLICATION_JSON));
+        JsonObject responseJson = parseResponse(response);
+
+        // The estimate depends on table statistics
+        assertContains(responseJson, totalCountKey);
+        Assert.assertTrue(responseJson.getInt(totalCountKey) >= 0);
+
+        assertContains(responseJson, dataKey);
+        Assert.assertEquals(
+            limit, responseJson.getJsonArray(dataKey).size());
+    }
+
+    /**
+     * Test fetching data returned by a query using keyset pagination.
+     *
+     * @param baseUrl The server url used for the request.
+     */
+    @Test
+    @RunAsClient
+    public final void testGetPagedKeyset(@ArquillianResource URL baseUrl) {
+        JsonObject sortedRequest = Json.createObjectBuilder()
+            .add("columns", Json.createArrayBuilder()
+                .add(Json.createObjectBuilder()
+                    .add("colIndex", 0)
+                    .add("filterVal", "")
+                    .add("isFilterActive", false)
+                    .add("isFilterNull", false)
+                    .add("isFilterNegate", false)
+                    .add("isFilterRegex", false)
+                    .add("sort", "asc")
+                    .add("sortIndex", 0)
+                    .add("gridColMpId", 1))
+        ).build();
+
+        // Fetch whole result sorted by the database as reference
+        JsonArray expected = parseResponse(client.target(
+            baseUrl + "rest/universal")
+            .request()
+            .header("X-SHIB-user", BaseTest.testUser)
+            .header("X-SHIB-roles", BaseTest.testRoles)
+            .post(Entity.entity(sortedRequest.toString(),
+                    MediaType.APPLICATION_JSON)))
+            .getJsonArray(dataKey);
+        Assert.assertEquals(totalCount, expected.size());
+
+        // Fetch pages of one entry, each starting after the last entry
+        // of the previous page
+        for (int i = 0; i <= expected.size(); i++) {
+            JsonObject pageRequest = i == 0
+                ? sortedRequest
+                : Json.createObjectBuilder(sortedRequest)
+                    .add("after", Json.createObjectBuilder()
+                        .add(hpNrKey, expected.getJsonObject(i - 1)
+                            .getString(hpNrKey)))
+                    .build();
+            JsonObject responseJson = parseResponse(client.target(
+                baseUrl + "rest/universal?limit=1")
+                .request()
+                .header("X-SHIB-user", BaseTest.testUser)
+                .header("X-SHIB-roles", BaseTest.testRoles)
+                .post(Entity.entity(pageRequest.toString(),
+                        MediaType.APPLICATION_JSON)));
+
+            assertContains(responseJson, dataKey);
+            if (i == expected.size()) {
+                Assert.assertTrue(responseJson.isNull(dataKey)
+                    || responseJson.getJsonArray(dataKey).isEmpty());
+            } else {
+                JsonArray page = responseJson.getJsonArray(dataKey);
+                assertContains(responseJson, totalCountKey);
+                Assert.assertEquals(
+                    totalCount, responseJson.getInt(totalCountKey));
+                Assert.assertEquals(1, page.size());
+                Assert.assertEquals(
+                    expected.getJsonObject(i).getString(hpNrKey),
+                    page.getJsonObject(0).getString(hpNrKey));
+            }
+        }
+    }
+
     /**
      * Test interface to retrieve SQL statement.
      *
@@ -0,0 +1,144 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.intevation.lada.model.lada.Measm;
+
+/**
+ * Unit tests for IdentifierIndex.
+ */
+public class IdentifierIndexTest {
+
+    private static final String EXT_ID = "ext";
+    private static final String MEAS_FACIL_ID = "06010";
+    private static final String MAIN_SAMPLE_ID = "main";
+
+    /**
+     * Test that unknown keys are not resolved by the index.
+     */
+    @Test
+    public void unknownKeyTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        Assert.assertNull(index.takeSampleIdByExtId(EXT_ID));
+        Assert.assertNull(
+            index.takeSampleIdByMainSampleId(MEAS_FACIL_ID, MAIN_SAMPLE_ID));
+        Assert.assertNull(index.findMeasmIds(1, "mmtId", "A3"));
+    }
+
+    /**
+     * Test that existing samples are found by their keys.
+     */
+    @Test
+    public void existingSampleTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        index.addKeys(
+            List.of(EXT_ID), List.of(List.of(MEAS_FACIL_ID, MAIN_SAMPLE_ID)));
+        index.putSample(1, EXT_ID, null, null);
+        index.putSample(2, null, MEAS_FACIL_ID, MAIN_SAMPLE_ID);
+
+        Assert.assertEquals(List.of(1), index.takeSampleIdByExtId(EXT_ID));
+        Assert.assertEquals(
+            List.of(2),
+            index.takeSampleIdByMainSampleId(MEAS_FACIL_ID, MAIN_SAMPLE_ID));
+    }
+
+    /**
+     * Test that a key consumed as not existing is not resolved again,
+     * since the sample might have been created in between.
+     */
+    @Test
+    public void consumedKeyCreatedAgainTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        index.addKeys(
+            List.of(EXT_ID), List.of(List.of(MEAS_FACIL_ID, MAIN_SAMPLE_ID)));
+
+        // First occurrence in the file: sample does not exist
+        Assert.assertEquals(List.of(), index.takeSampleIdByExtId(EXT_ID));
+        Assert.assertEquals(
+            List.of(),
+            index.takeSampleIdByMainSampleId(MEAS_FACIL_ID, MAIN_SAMPLE_ID));
+
+        // Next occurrence: sample has been created and must be queried
+        Assert.assertNull(index.takeSampleIdByExtId(EXT_ID));
+        Assert.assertNull(
+            index.takeSampleIdByMainSampleId(MEAS_FACIL_ID, MAIN_SAMPLE_ID));
+    }
+
+    /**
+     * Test finding measurements by their keys.
+     */
+    @Test
+    public void findMeasmTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        index.addKeys(List.of(EXT_ID), List.of());
+        index.putSample(1, EXT_ID, null, null);
+        index.putMeasm(measm(10, 1, 5, "min", "A3"));
+        index.putMeasm(measm(11, 1, null, null, "A3"));
+
+        Assert.assertEquals(List.of(10), index.findMeasmIds(1, "extId", 5));
+        Assert.assertEquals(
+            List.of(10), index.findMeasmIds(1, "minSampleId", "min"));
+        Assert.assertEquals(
+            List.of(10, 11), index.findMeasmIds(1, "mmtId", "A3"));
+        Assert.assertEquals(List.of(), index.findMeasmIds(1, "mmtId", "G1"));
+    }
+
+    /**
+     * Test that measurements created or changed during the import are
+     * found by their new keys.
+     */
+    @Test
+    public void measmCreatedAndChangedTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        index.addKeys(List.of(EXT_ID), List.of());
+        index.putSample(1, EXT_ID, null, null);
+        index.putMeasm(measm(10, 1, null, null, "A3"));
+
+        // Created measurement
+        index.putMeasm(measm(11, 1, null, "new", "G1"));
+        Assert.assertEquals(
+            List.of(11), index.findMeasmIds(1, "minSampleId", "new"));
+
+        // Changed measurement
+        index.putMeasm(measm(10, 1, null, "changed", "A3"));
+        Assert.assertEquals(
+            List.of(10), index.findMeasmIds(1, "minSampleId", "changed"));
+        Assert.assertEquals(List.of(10), index.findMeasmIds(1, "mmtId", "A3"));
+    }
+
+    /**
+     * Test that measurements of samples not in the index are ignored.
+     */
+    @Test
+    public void measmOfUnknownSampleTest() {
+        IdentifierIndex index = new IdentifierIndex(null);
+        index.putMeasm(measm(10, 1, null, null, "A3"));
+        Assert.assertNull(index.findMeasmIds(1, "mmtId", "A3"));
+    }
+
+    private static Measm measm(
+        Integer id,
+        Integer sampleId,
+        Integer extId,
+        String minSampleId,
+        String mmtId
+    ) {
+        Measm measm = new Measm();
+        measm.setId(id);
+        measm.setSampleId(sampleId);
+        measm.setExtId(extId);
+        measm.setMinSampleId(minSampleId);
+        measm.setMmtId(mmtId);
+        return measm;
+    }
+}
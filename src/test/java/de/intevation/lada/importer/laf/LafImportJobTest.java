@@ -0,0 +1,76 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer.laf;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for grouping files of LafImportJob.
+ */
+public class LafImportJobTest {
+
+    /**
+     * Test finding sample keys in LAF data.
+     */
+    @Test
+    public void findSampleKeysTest() {
+        String laf = "%PROBE%\n"
+            + "UEBERTRAGUNGSFORMAT 7\n"
+            + "PROBE_ID \"ext 1\"\n"
+            + "  hauptprobennummer\t120510002\r\n"
+            + "%PROBE%\n"
+            + "Probe_Id ext2\n"
+            + "PROBENART E\n"
+            + "MESSPROGRAMM_S 1 PROBE_ID 3\n";
+        Assert.assertEquals(
+            Set.of(
+                "PROBE_ID ext 1",
+                "HAUPTPROBENNUMMER 120510002",
+                "PROBE_ID ext2"),
+            LafImportJob.findSampleKeys(laf));
+
+        Assert.assertEquals(
+            Set.of(), LafImportJob.findSampleKeys("PROBENART E\n"));
+    }
+
+    /**
+     * Test grouping files sharing sample keys.
+     */
+    @Test
+    public void groupBySampleKeysTest() {
+        Assert.assertEquals(
+            List.of(), LafImportJob.groupBySampleKeys(List.of()));
+
+        Assert.assertEquals(
+            List.of(List.of(0), List.of(1), List.of(2)),
+            LafImportJob.groupBySampleKeys(List.of(
+                    Set.of("PROBE_ID a"),
+                    Set.of("PROBE_ID b"),
+                    Set.of())));
+
+        // Files are grouped transitively and keep their order
+        Assert.assertEquals(
+            List.of(List.of(1), List.of(0, 2, 3)),
+            LafImportJob.groupBySampleKeys(List.of(
+                    Set.of("PROBE_ID a"),
+                    Set.of("PROBE_ID b"),
+                    Set.of("HAUPTPROBENNUMMER c"),
+                    Set.of("PROBE_ID a", "HAUPTPROBENNUMMER c"))));
+
+        // Keys of different keywords do not match
+        Assert.assertEquals(
+            List.of(List.of(0), List.of(1)),
+            LafImportJob.groupBySampleKeys(List.of(
+                    Set.of("PROBE_ID a"),
+                    Set.of("HAUPTPROBENNUMMER a"))));
+    }
+}
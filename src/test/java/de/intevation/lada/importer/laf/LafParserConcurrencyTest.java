@@ -0,0 +1,92 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer.laf;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.intevation.lada.importer.ReportItem;
+
+/**
+ * Unit tests for concurrent parsing of LAF data.
+ */
+public class LafParserConcurrencyTest {
+
+    private static final int PARSES = 8;
+
+    private static final int ROUNDS = 20;
+
+    /**
+     * Generate LAF data with a parser error in the given line.
+     *
+     * The second sample has no data, which is reported with the line of
+     * the following token.
+     */
+    private static String invalidLaf(int errorLine) {
+        StringBuilder laf = new StringBuilder("%PROBE%\n")
+            .append("PROBE_ID \"test\"\n");
+        for (int i = 3; i < errorLine - 1; i++) {
+            laf.append("\n");
+        }
+        return laf.append("%PROBE%\n")
+            .append("%ENDE%\n")
+            .toString();
+    }
+
+    private static List<ReportItem> parse(String laf) throws Exception {
+        LafErrorListener errorListener = new LafErrorListener();
+        LafImporter.parse(
+            LafImporter.readLaf(new StringReader(laf)), errorListener);
+        return errorListener.getErrors();
+    }
+
+    /**
+     * Test that errors of concurrent parses are reported separately.
+     *
+     * @throws Exception if a parse fails
+     */
+    @Test
+    public void concurrentParseErrorsTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PARSES);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CyclicBarrier start = new CyclicBarrier(PARSES);
+                List<Future<List<ReportItem>>> results = new ArrayList<>();
+                for (int i = 0; i < PARSES; i++) {
+                    String laf = invalidLaf(i + 4);
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return parse(laf);
+                    }));
+                }
+
+                for (int i = 0; i < PARSES; i++) {
+                    List<ReportItem> errors = results.get(i).get();
+                    Assert.assertFalse(errors.isEmpty());
+                    String expected = "line " + (i + 4) + ":";
+                    for (ReportItem error: errors) {
+                        Assert.assertTrue(
+                            error.getValue() + " does not start with "
+                            + expected,
+                            error.getValue().toString().startsWith(expected));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.importer.laf;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.Trees;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.intevation.lada.importer.ReportItem;
+
+/**
+ * Unit tests for parsing LAF data with SLL prediction.
+ */
+public class LafParserPredictionTest {
+
+    /**
+     * Valid LAF data using optional headers, empty lines, lower case
+     * keywords and unquoted values, which make the grammar ambiguous.
+     */
+    private static final String LAF = "%PROBE%\n"
+        + "UEBERTRAGUNGSFORMAT 7\n"
+        + "VERSION \"0084\"\n"
+        + "PROBE_ID \"sample1\"\n"
+        + "HAUPTPROBENNUMMER \"main1\"\n"
+        + "MESSSTELLE \"06010\"\n"
+        + "DATENBASIS \"IMIS1\"\n"
+        + "PROBENART \"E\"\n"
+        + "MESSPROGRAMM_S 1\n"
+        + "ZEITBASIS_S 2\n"
+        + "PROBENAHME_DATUM_UHRZEIT_A 20240101 1200\n"
+        + "UMWELTBEREICH_S \"L54\"\n"
+        + "DESKRIPTOREN \"01 02 03 00 00 00 00 00 00 00 00 00\"\n"
+        + "\n"
+        + "P_HERKUNFTSLAND_S 0\n"
+        + "P_GEMEINDESCHLUESSEL \"11000000\"\n"
+        + "P_KOORDINATEN_S 05 \"12.0\" \"52.0\"\n"
+        + "%URSPRUNGSORT%\n"
+        + "U_HERKUNFTSLAND_S 0\n"
+        + "U_ORTS_ZUSATZCODE \"code\"\n"
+        + "PZB_S \"A1\" 42 \"\" 5.0\n"
+        + "PROBENKOMMENTAR \"06010\" 20240101 1200 \"sample comment\"\n"
+        + "%MESSUNG%\n"
+        + "MESSUNGS_ID 1\n"
+        + "NEBENPROBENNUMMER \"01\"\n"
+        + "MESSMETHODE_S \"A3\"\n"
+        + "MESS_DATUM_UHRZEIT 20240102 0800\n"
+        + "MESSZEIT_SEKUNDEN 3600\n"
+        + "MESSWERT \"H-3\" 72.177002 \"Bq/kgFM\" 4.4\n"
+        + "MESSWERT_NWG \"Cs-137\" <0.5 \"Bq/kgFM\" \"\" 0.5\n"
+        + "KOMMENTAR \"06010\" 20240102 0800 \"measm comment\"\n"
+        + "\n"
+        + "%MESSUNG%\n"
+        + "messmethode_s \"G1\"\n"
+        + "messwert \"Cs-137\" 1.5 \"Bq/kgFM\" 10\n"
+        + "%PROBE%\n"
+        + "probe_id sample2\n"
+        + "datenbasis_s 2\n"
+        + "proben_nr \"main2\"\n"
+        + "MESSMETHODE_S \"A3\"\n"
+        + "proben_nr \"min2\"\n"
+        + "MESSWERT \"H-3\" 1.0 \"Bq/kgFM\"\n"
+        + "%ENDE%\n";
+
+    /**
+     * Test that parsing valid LAF data with SLL prediction succeeds and
+     * gives the same result as full LL prediction.
+     *
+     * @throws Exception if reading the data fails
+     */
+    @Test
+    public void sllEqualsLlTest() throws Exception {
+        CommonTokenStream tokens = new CommonTokenStream(new LafLexer(
+            LafImporter.readLaf(new StringReader(LAF))));
+
+        // Cancelled on syntax errors or if SLL is not sufficient
+        ParseTree sll = LafImporter.parseTree(
+            tokens, PredictionMode.SLL, null);
+
+        LafErrorListener errorListener = new LafErrorListener();
+        ParseTree ll = LafImporter.parseTree(
+            tokens, PredictionMode.LL, errorListener);
+        Assert.assertTrue(errorListener.getErrors().isEmpty());
+
+        List<String> ruleNames = Arrays.asList(LafParser.ruleNames);
+        Assert.assertEquals(
+            Trees.toStringTree(ll, ruleNames),
+            Trees.toStringTree(sll, ruleNames));
+
+        List<Object> expected = describe(walk(ll));
+        Assert.assertEquals(expected, describe(walk(sll)));
+
+        // Data are actually read
+        Assert.assertEquals(2, walk(sll).getData().getProben().size());
+    }
+
+    /**
+     * Test that parse() gives the same result as full LL prediction.
+     *
+     * @throws Exception if reading the data fails
+     */
+    @Test
+    public void parseEqualsLlTest() throws Exception {
+        LafErrorListener errorListener = new LafErrorListener();
+        LafObjectListener parsed = LafImporter.parse(
+            LafImporter.readLaf(new StringReader(LAF)), errorListener);
+        Assert.assertTrue(errorListener.getErrors().isEmpty());
+
+        CommonTokenStream tokens = new CommonTokenStream(new LafLexer(
+            LafImporter.readLaf(new StringReader(LAF))));
+        ParseTree ll = LafImporter.parseTree(
+            tokens, PredictionMode.LL, new LafErrorListener());
+
+        Assert.assertEquals(describe(walk(ll)), describe(parsed));
+    }
+
+    private static LafObjectListener walk(ParseTree tree) {
+        LafObjectListener listener = new LafObjectListener();
+        new ParseTreeWalker().walk(listener, tree);
+        return listener;
+    }
+
+    /**
+     * Describe the output of a listener by comparable values.
+     */
+    private static List<Object> describe(LafObjectListener listener) {
+        List<Object> description = new ArrayList<>();
+        for (LafRawData.Sample sample: listener.getData().getProben()) {
+            description.add(sample.getAttributes());
+            description.add(sample.getKommentare());
+            description.add(sample.getZusatzwerte());
+            description.add(sample.getEntnahmeOrt());
+            description.add(sample.getUrsprungsOrte());
+            for (LafRawData.Messung measm: sample.getMessungen()) {
+                description.add(measm.getAttributes());
+                description.add(measm.getMesswerte());
+                description.add(measm.getKommentare());
+                description.add(measm.hasErrors());
+            }
+        }
+        description.add(describe(listener.getErrors()));
+        description.add(describe(listener.getWarnings()));
+        description.add(describe(listener.getParserWarnings()));
+        return description;
+    }
+
+    private static Map<String, List<String>> describe(
+        Map<String, List<ReportItem>> items
+    ) {
+        Map<String, List<String>> description = new TreeMap<>();
+        items.forEach((key, value) -> description.put(key, describe(value)));
+        return description;
+    }
+
+    private static List<String> describe(List<ReportItem> items) {
+        List<String> description = new ArrayList<>();
+        for (ReportItem item: items) {
+            description.add(
+                item.getKey() + " " + item.getValue() + " " + item.getCode());
+        }
+        return description;
+    }
+}
@@ -8,11 +8,15 @@
 package de.intevation.lada.query;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
 import org.junit.Test;
 
+import de.intevation.lada.model.master.Disp;
 import de.intevation.lada.model.master.Filter;
 import de.intevation.lada.model.master.FilterType;
 import de.intevation.lada.model.master.GridColConf;
@@ -143,6 +147,96 @@ public class QueryToolsTest {
         );
     }
 
+    /**
+     * Test that query template keys do not depend on filter values,
+     * except for the number of tags to filter by.
+     */
+    @Test
+    public void templateKeyTest() {
+        setFilterWithType("test");
+        List<Object> key = QueryTemplateCache.templateKey(1, columnValues);
+
+        columnValue1.setFilterVal("'other'");
+        assertEquals(
+            key, QueryTemplateCache.templateKey(1, columnValues));
+        assertNotEquals(
+            key, QueryTemplateCache.templateKey(2, columnValues));
+
+        columnValue1.setIsFilterNegate(true);
+        assertNotEquals(
+            key, QueryTemplateCache.templateKey(1, columnValues));
+
+        setFilterWithType(QueryTools.TAG_FILTER_TYPE);
+        columnValue1.setFilterVal("1,2");
+        List<Object> tagKey =
+            QueryTemplateCache.templateKey(1, columnValues);
+        columnValue1.setFilterVal("3,4");
+        assertEquals(
+            tagKey, QueryTemplateCache.templateKey(1, columnValues));
+        columnValue1.setFilterVal("3");
+        assertNotEquals(
+            tagKey, QueryTemplateCache.templateKey(1, columnValues));
+    }
+
+    /**
+     * Test detection of date columns used to convert keyset values.
+     */
+    @Test
+    public void isDateColumnTest() {
+        assertFalse(QueryTools.isDateColumn(column1));
+
+        Disp disp = new Disp();
+        disp.setName("text");
+        column1.setDisp(disp);
+        assertFalse(QueryTools.isDateColumn(column1));
+
+        disp.setName(QueryTools.DATE_DISP);
+        assertTrue(QueryTools.isDateColumn(column1));
+
+        disp.setName("text");
+        setFilterWithType(QueryTools.TEXT_FILTER_TYPE);
+        assertFalse(QueryTools.isDateColumn(column1));
+
+        setFilterWithType(QueryTools.DATETIME_FILTER_TYPE);
+        assertTrue(QueryTools.isDateColumn(column1));
+
+        setFilterWithType(QueryTools.LISTDATETIME_FILTER_TYPE);
+        assertTrue(QueryTools.isDateColumn(column1));
+    }
+
+    /**
+     * Test reading the row estimate from lines of EXPLAIN output.
+     */
+    @Test
+    public void parsePlanRowsTest() {
+        assertEquals(
+            1234,
+            QueryTools.parsePlanRows(
+                "Sort  (cost=149.30..152.39 rows=1234 width=112)"));
+        assertEquals(
+            0,
+            QueryTools.parsePlanRows(
+                "Result  (cost=0.00..0.00 rows=0 width=0)"));
+        // Estimates exceeding int range
+        assertEquals(
+            Integer.MAX_VALUE,
+            QueryTools.parsePlanRows(
+                "Nested Loop  (cost=0.00..1.00 rows=12345678901 width=8)"));
+        // Relation names might contain text resembling the estimate
+        assertEquals(
+            5,
+            QueryTools.parsePlanRows(
+                "Seq Scan on rows=1  (cost=0.00..1.05 rows=5 width=4)"));
+    }
+
+    /**
+     * Test that a plan line without row estimate is rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void parsePlanRowsMissingTest() {
+        QueryTools.parsePlanRows("Hash Cond: (a.id = b.id)");
+    }
+
     private void setFilterWithType(String type) {
         filterType.setType(type);
 
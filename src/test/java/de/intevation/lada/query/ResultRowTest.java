@@ -0,0 +1,77 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Unit test for ResultRow.
+ */
+public class ResultRowTest {
+
+    private final Map<String, Integer> columnIndex = new LinkedHashMap<>();
+
+    private ResultRow createRow() {
+        columnIndex.put("id", 1);
+        columnIndex.put("name", 0);
+        return new ResultRow(columnIndex, new Object[] {"test", 1, "hidden"});
+    }
+
+    /**
+     * Test access to indexed columns.
+     */
+    @Test
+    public void getIndexedColumnTest() {
+        ResultRow row = createRow();
+        assertEquals(1, row.get("id"));
+        assertEquals("test", row.get("name"));
+        assertNull(row.get("hidden"));
+        assertFalse(row.containsKey("hidden"));
+        assertEquals(2, row.size());
+    }
+
+    /**
+     * Test adding values for keys not contained in the column index.
+     */
+    @Test
+    public void putAdditionalTest() {
+        ResultRow row = createRow();
+        row.put("readonly", true);
+        assertTrue(row.containsKey("readonly"));
+        assertEquals(true, row.get("readonly"));
+        assertEquals(3, row.size());
+
+        assertEquals(1, row.put("id", 2));
+        assertEquals(2, row.get("id"));
+    }
+
+    /**
+     * Test equality with a HashMap containing the same entries.
+     */
+    @Test
+    public void entrySetTest() {
+        ResultRow row = createRow();
+        row.put("readonly", false);
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 1);
+        expected.put("name", "test");
+        expected.put("readonly", false);
+        assertEquals(expected, row);
+        assertEquals(expected, new HashMap<>(row));
+    }
+}
@@ -10,6 +10,7 @@ package de.intevation.lada.test.land;
 import java.net.URL;
 import java.util.Arrays;
 
+import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonValue;
@@ -70,6 +71,12 @@ public class MesswertTest extends ServiceTest {
         JsonObject created = create("rest/measval", create);
         update("rest/measval/10000", "lessThanLOD", "<", ">");
         delete("rest/measval/" + created.getJsonObject("data").get("id"));
+
+        JsonObject bulkCreated = bulkOperation(
+            "rest/measval/bulk",
+            Json.createArrayBuilder().add(create).build());
+        delete("rest/measval/" + bulkCreated.getJsonArray("data")
+            .getJsonObject(0).getJsonObject("data").get("id"));
     }
 
     /**
@@ -10,6 +10,7 @@ package de.intevation.lada.test.land;
 import java.net.URL;
 import java.util.Arrays;
 
+import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonValue;
@@ -65,6 +66,9 @@ public class StatusTest extends ServiceTest {
         get("rest/statusprot?measmId=1000");
         getById("rest/statusprot/1000", expectedById);
         create("rest/statusprot", create);
+        bulkOperation(
+            "rest/statusprot/bulk",
+            Json.createArrayBuilder().add(create).build());
     }
 
 }
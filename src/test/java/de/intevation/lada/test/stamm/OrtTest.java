@@ -17,6 +17,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -113,6 +114,30 @@ public class OrtTest extends ServiceTest {
 
         Assert.assertArrayEquals(bytes, responseBytes);
 
+        // Get unchanged image
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+        Response notModifiedResponse = reqTarget.request()
+            .header("X-SHIB-user", BaseTest.testUser)
+            .header("X-SHIB-roles", BaseTest.testRoles)
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .get();
+        Assert.assertEquals(
+            Status.NOT_MODIFIED.getStatusCode(),
+            notModifiedResponse.getStatus());
+
+        // Upload image as binary data
+        Response binaryPostResponse = reqBuilder.post(Entity.entity(
+                bytes, MediaType.APPLICATION_OCTET_STREAM));
+        Assert.assertEquals(
+            Status.NO_CONTENT.getStatusCode(),
+            binaryPostResponse.getStatus());
+        Response binaryResponse = reqBuilder.get();
+        Assert.assertEquals(
+            Status.OK.getStatusCode(), binaryResponse.getStatus());
+        Assert.assertArrayEquals(
+            bytes, binaryResponse.readEntity(byte[].class));
+
         // Delete image
         Response deleteResponse = reqBuilder.delete();
         Assert.assertEquals(
@@ -0,0 +1,44 @@
+/* Copyright (C) 2024 by Bundesamt fuer Strahlenschutz
+ * Software engineering by Intevation GmbH
+ *
+ * This file is Free Software under the GNU GPL (v>=3)
+ * and comes with ABSOLUTELY NO WARRANTY! Check out
+ * the documentation coming with IMIS-Labordaten-Application for details.
+ */
+package de.intevation.lada.util.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for static helpers of Repository.
+ */
+public class RepositoryTest {
+
+    /**
+     * Test splitting values for IN clauses into chunks.
+     */
+    @Test
+    public void partitionTest() {
+        Assert.assertEquals(List.of(), Repository.partition(List.of()));
+
+        Assert.assertEquals(
+            List.of(List.of(1, 2)),
+            Repository.partition(Arrays.asList(1, null, 2, 1)));
+
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            values.add(i);
+        }
+        List<List<Integer>> chunks = Repository.partition(values);
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals(1000, chunks.get(0).size());
+        Assert.assertEquals(1000, chunks.get(1).size());
+        Assert.assertEquals(500, chunks.get(2).size());
+        Assert.assertEquals(Integer.valueOf(1000), chunks.get(1).get(0));
+    }
+}